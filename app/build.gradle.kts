@@ -29,6 +29,11 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    sourceSets {
+        // Fixtures used by both unit tests and instrumented benchmarks
+        getByName("test").java.srcDir("src/sharedTest/java")
+        getByName("androidTest").java.srcDir("src/sharedTest/java")
+    }
 }
 
 dependencies {
@@ -48,10 +53,13 @@ dependencies {
     
     // Image Loading
     implementation(libs.glide)
+    implementation(libs.glide.recyclerview)
+    annotationProcessor(libs.glide.compiler)
     
     // Testing
     testImplementation(libs.junit)
     testImplementation(libs.mockito)
+    testImplementation(libs.mockwebserver)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.mp3player.api;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static com.example.mp3player.api.DeezerFixtures.*;
+import static org.junit.Assert.*;
+
+/**
+ * Parsing a large search page: the Gson tree DeezerApiClient used to build
+ * versus the streaming DeezerJsonParser.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeezerJsonParserBenchmark {
+    private static final String TAG = "DeezerJsonParserBenchmark";
+    private static final int TRACKS = 500;
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void streamingVersusTree_500() throws IOException {
+        String json = buildResponse(TRACKS);
+
+        // Warm up both paths before timing
+        for (int i = 0; i < 20; i++) {
+            parseWithTree(json);
+            DeezerJsonParser.parseTrackList(new StringReader(json));
+        }
+
+        long treeStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            parseWithTree(json);
+        }
+        long treeNanos = System.nanoTime() - treeStart;
+
+        long streamStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(TRACKS, DeezerJsonParser.parseTrackList(new StringReader(json)).size());
+        }
+        long streamNanos = System.nanoTime() - streamStart;
+
+        Log.i(TAG, String.format("Parse %d tracks: tree %.3f ms, streaming %.3f ms",
+                TRACKS,
+                treeNanos / 1e6 / ROUNDS,
+                streamNanos / 1e6 / ROUNDS));
+    }
+}
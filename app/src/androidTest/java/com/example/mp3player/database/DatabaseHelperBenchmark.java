@@ -0,0 +1,135 @@
+package com.example.mp3player.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Per-query latency of library lookups with the connection held open versus
+ * re-opened for every call, which is what closing the database after each
+ * query used to cost, and of a full library load with SQLite's default page
+ * cache versus the larger one DatabaseHelper configures.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperBenchmark {
+    private static final String TAG = "DatabaseHelperBenchmark";
+    private static final long BENCH_USER_ID = 900_000_001L;
+    private static final int TRACK_COUNT = 50;
+    private static final int ITERATIONS = 500;
+    private static final long CACHE_USER_ID = 900_000_004L;
+    private static final int CACHE_TRACK_COUNT = 5_000;
+    private static final int CACHE_ROUNDS = 20;
+    // What SQLite uses when cache_size is not set: about 2 MB
+    private static final int DEFAULT_CACHE_SIZE_KB = 2000;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        databaseHelper = DatabaseHelper.getInstance(context);
+
+        for (int i = 0; i < TRACK_COUNT; i++) {
+            Track track = new Track(i, "Track " + i, "Artist", "Album", null, null, 30, false);
+            databaseHelper.insertLibraryTrack(BENCH_USER_ID, track);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (int i = 0; i < TRACK_COUNT; i++) {
+            databaseHelper.deleteLibraryTrack(BENCH_USER_ID, i);
+        }
+    }
+
+    @Test
+    public void isTrackInLibrary_heldOpenVersusReopened() {
+        // Warm up
+        for (int i = 0; i < 50; i++) {
+            databaseHelper.isTrackInLibrary(BENCH_USER_ID, i % TRACK_COUNT);
+        }
+
+        long reopenStart = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertTrue(databaseHelper.isTrackInLibrary(BENCH_USER_ID, i % TRACK_COUNT));
+            databaseHelper.close(); // Forces the next call to re-open the file and re-read the schema
+        }
+        long reopenNanos = System.nanoTime() - reopenStart;
+
+        long heldStart = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertTrue(databaseHelper.isTrackInLibrary(BENCH_USER_ID, i % TRACK_COUNT));
+        }
+        long heldNanos = System.nanoTime() - heldStart;
+
+        double reopenMicros = reopenNanos / 1e3 / ITERATIONS;
+        double heldMicros = heldNanos / 1e3 / ITERATIONS;
+        Log.i(TAG, String.format("isTrackInLibrary: re-opened %.1f us/query, held open %.1f us/query",
+                reopenMicros, heldMicros));
+
+        assertTrue("Held-open queries should not be slower", heldNanos <= reopenNanos);
+    }
+
+    @Test
+    public void getLibraryTracks_defaultVersusConfiguredPageCache() {
+        List<Track> tracks = new ArrayList<>(CACHE_TRACK_COUNT);
+        for (int i = 0; i < CACHE_TRACK_COUNT; i++) {
+            tracks.add(new Track(i, "Track " + i, "Artist " + i % 200, "Album " + i % 400,
+                    "https://e-cdns-images.dzcdn.net/images/cover/" + i + "/250x250.jpg",
+                    "https://cdns-preview.dzcdn.net/stream/" + i + ".mp3", 30, false));
+        }
+        databaseHelper.insertLibraryTracks(CACHE_USER_ID, tracks);
+
+        // cache_size is per connection; a transaction pins every query below to the
+        // primary connection, which is the one onConfigure set up
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("PRAGMA cache_size = -" + DEFAULT_CACHE_SIZE_KB);
+            double defaultMillis = timeLibraryLoads();
+
+            db.execSQL("PRAGMA cache_size = -" + DatabaseHelper.PAGE_CACHE_SIZE_KB);
+            double configuredMillis = timeLibraryLoads();
+
+            Log.i(TAG, String.format("getLibraryTracks of %d tracks: %d KiB cache %.2f ms, %d KiB cache %.2f ms",
+                    CACHE_TRACK_COUNT,
+                    DEFAULT_CACHE_SIZE_KB, defaultMillis,
+                    DatabaseHelper.PAGE_CACHE_SIZE_KB, configuredMillis));
+        } finally {
+            db.endTransaction();
+            databaseHelper.getWritableDatabase().delete(
+                    DatabaseHelper.TABLE_LIBRARY_TRACKS,
+                    DatabaseHelper.COLUMN_USER_ID_FK + " = ?",
+                    new String[]{String.valueOf(CACHE_USER_ID)});
+        }
+    }
+
+    /**
+     * Load the whole library once to fill the cache, then time repeated loads
+     * @return Milliseconds per load
+     */
+    private double timeLibraryLoads() {
+        assertEquals(CACHE_TRACK_COUNT, databaseHelper.getLibraryTracks(CACHE_USER_ID).size());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CACHE_ROUNDS; i++) {
+            databaseHelper.getLibraryTracks(CACHE_USER_ID);
+        }
+        return (System.nanoTime() - start) / 1e6 / CACHE_ROUNDS;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mp3player.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Adding and removing N library tracks one call at a time (existence check plus
+ * insert, each in its own implicit transaction) versus the batch APIs that run
+ * one compiled statement inside a single transaction.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LibraryBatchBenchmark {
+    private static final String TAG = "LibraryBatchBenchmark";
+    private static final long BENCH_USER_ID = 900_000_003L;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        databaseHelper = DatabaseHelper.getInstance(context);
+        clearLibrary();
+    }
+
+    @After
+    public void tearDown() {
+        clearLibrary();
+    }
+
+    @Test
+    public void batchVersusPerRow_1k() {
+        run(1_000);
+    }
+
+    @Test
+    public void batchVersusPerRow_10k() {
+        run(10_000);
+    }
+
+    @Test
+    public void insertLibraryTracks_skipsExistingRows() {
+        List<Track> tracks = tracks(10);
+        databaseHelper.insertLibraryTrack(BENCH_USER_ID, tracks.get(3));
+
+        long[] inserted = databaseHelper.insertLibraryTracks(BENCH_USER_ID, tracks);
+
+        assertEquals(9, inserted.length);
+        assertEquals(10, databaseHelper.getLibraryTrackIds(BENCH_USER_ID).length);
+    }
+
+    private void run(int count) {
+        List<Track> tracks = tracks(count);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = tracks.get(i).getId();
+        }
+
+        long perRowInsertStart = System.nanoTime();
+        for (Track track : tracks) {
+            if (!databaseHelper.isTrackInLibrary(BENCH_USER_ID, track.getId())) {
+                databaseHelper.insertLibraryTrack(BENCH_USER_ID, track);
+            }
+        }
+        long perRowInsertNanos = System.nanoTime() - perRowInsertStart;
+
+        long perRowDeleteStart = System.nanoTime();
+        for (long id : ids) {
+            databaseHelper.deleteLibraryTrack(BENCH_USER_ID, id);
+        }
+        long perRowDeleteNanos = System.nanoTime() - perRowDeleteStart;
+
+        long batchInsertStart = System.nanoTime();
+        long[] inserted = databaseHelper.insertLibraryTracks(BENCH_USER_ID, tracks);
+        long batchInsertNanos = System.nanoTime() - batchInsertStart;
+        assertEquals(count, inserted.length);
+
+        long batchDeleteStart = System.nanoTime();
+        int deleted = databaseHelper.deleteLibraryTracks(BENCH_USER_ID, ids);
+        long batchDeleteNanos = System.nanoTime() - batchDeleteStart;
+        assertEquals(count, deleted);
+
+        Log.i(TAG, String.format("%d tracks: insert per-row %.1f ms, batch %.1f ms; delete per-row %.1f ms, batch %.1f ms",
+                count,
+                perRowInsertNanos / 1e6, batchInsertNanos / 1e6,
+                perRowDeleteNanos / 1e6, batchDeleteNanos / 1e6));
+    }
+
+    private static List<Track> tracks(int count) {
+        List<Track> tracks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tracks.add(new Track(i, "Track " + i, "Artist " + (i % 100), "Album " + (i % 300),
+                    "https://e-cdns-images.dzcdn.net/images/cover/" + i + "/250x250.jpg",
+                    "https://cdns-preview.dzcdn.net/stream/" + i + ".mp3", 180, false));
+        }
+        return tracks;
+    }
+
+    private void clearLibrary() {
+        databaseHelper.getWritableDatabase().delete(
+                DatabaseHelper.TABLE_LIBRARY_TRACKS,
+                DatabaseHelper.COLUMN_USER_ID_FK + " = ?",
+                new String[]{String.valueOf(BENCH_USER_ID)});
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.mp3player.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs several library readers against one writer on library_tracks and reports
+ * throughput; with WAL the readers should keep going while writes commit.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LibraryConcurrencyStressTest {
+    private static final String TAG = "LibraryStressTest";
+    private static final long STRESS_USER_ID = 900_000_002L;
+    private static final int SEED_TRACKS = 500;
+    private static final int READER_THREADS = 4;
+    private static final long DURATION_MS = 3000;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        databaseHelper = DatabaseHelper.getInstance(context);
+
+        for (int i = 0; i < SEED_TRACKS; i++) {
+            databaseHelper.insertLibraryTrack(STRESS_USER_ID, track(i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.getWritableDatabase().delete(
+                DatabaseHelper.TABLE_LIBRARY_TRACKS,
+                DatabaseHelper.COLUMN_USER_ID_FK + " = ?",
+                new String[]{String.valueOf(STRESS_USER_ID)});
+    }
+
+    @Test
+    public void walModeIsEnabled() {
+        try (Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("PRAGMA journal_mode", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("wal", cursor.getString(0).toLowerCase());
+        }
+    }
+
+    @Test
+    public void readersAndWriter_runConcurrently() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(READER_THREADS + 1);
+
+        for (int r = 0; r < READER_THREADS; r++) {
+            new Thread(() -> {
+                try {
+                    int i = 0;
+                    while (running.get()) {
+                        if (i % 10 == 0) {
+                            assertFalse(databaseHelper.getLibraryTracks(STRESS_USER_ID).isEmpty());
+                        } else {
+                            databaseHelper.isTrackInLibrary(STRESS_USER_ID, i % SEED_TRACKS);
+                        }
+                        reads.incrementAndGet();
+                        i++;
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown();
+                }
+            }, "reader-" + r).start();
+        }
+
+        new Thread(() -> {
+            try {
+                long id = SEED_TRACKS;
+                while (running.get()) {
+                    databaseHelper.insertLibraryTrack(STRESS_USER_ID, track(id));
+                    databaseHelper.deleteLibraryTrack(STRESS_USER_ID, id);
+                    writes.addAndGet(2);
+                    id++;
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                done.countDown();
+            }
+        }, "writer").start();
+
+        Thread.sleep(DURATION_MS);
+        running.set(false);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        if (failure.get() != null) {
+            throw new AssertionError("Worker failed", failure.get());
+        }
+
+        double seconds = DURATION_MS / 1000.0;
+        Log.i(TAG, String.format("%d readers + 1 writer: %.0f reads/s, %.0f writes/s",
+                READER_THREADS, reads.get() / seconds, writes.get() / seconds));
+        assertTrue(reads.get() > 0);
+        assertTrue(writes.get() > 0);
+    }
+
+    private static Track track(long id) {
+        return new Track(id, "Track " + id, "Artist", "Album", null, null, 30, false);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.mp3player.database;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class LibraryPagingTest {
+    private static final long TEST_USER_ID = 900_000_004L;
+    private static final int TRACK_COUNT = 237;
+    private static final int PAGE_SIZE = 50;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        databaseHelper = DatabaseHelper.getInstance(context);
+        clearLibrary();
+
+        // One transaction, so most rows share the same added_at second and only the id orders them
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i < TRACK_COUNT; i++) {
+            tracks.add(new Track(i, "Track " + i, "Artist", "Album", null, null, 30, false));
+        }
+        databaseHelper.insertLibraryTracks(TEST_USER_ID, tracks);
+    }
+
+    @After
+    public void tearDown() {
+        clearLibrary();
+    }
+
+    @Test
+    public void pagesCoverLibraryInOrderWithoutGapsOrDuplicates() {
+        List<Track> expected = databaseHelper.getLibraryTracks(TEST_USER_ID);
+        List<Track> paged = new ArrayList<>();
+
+        LibraryPage page = databaseHelper.getLibraryPage(TEST_USER_ID, null, PAGE_SIZE);
+        int pages = 1;
+        paged.addAll(page.getTracks());
+        while (page.hasNext()) {
+            assertEquals(PAGE_SIZE, page.getTracks().size());
+            page = databaseHelper.getLibraryPage(TEST_USER_ID, page.getNextKey(), PAGE_SIZE);
+            paged.addAll(page.getTracks());
+            pages++;
+        }
+
+        assertEquals((TRACK_COUNT + PAGE_SIZE - 1) / PAGE_SIZE, pages);
+        assertEquals(expected.size(), paged.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), paged.get(i).getId());
+        }
+    }
+
+    @Test
+    public void exactMultipleOfPageSize_hasNoEmptyTrailingPage() {
+        LibraryPage page = databaseHelper.getLibraryPage(TEST_USER_ID, null, TRACK_COUNT);
+
+        assertEquals(TRACK_COUNT, page.getTracks().size());
+        assertFalse(page.hasNext());
+    }
+
+    private void clearLibrary() {
+        databaseHelper.getWritableDatabase().delete(
+                DatabaseHelper.TABLE_LIBRARY_TRACKS,
+                DatabaseHelper.COLUMN_USER_ID_FK + " = ?",
+                new String[]{String.valueOf(TEST_USER_ID)});
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.mp3player.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class LibrarySearchIndexTest {
+    private static final String TAG = "LibrarySearchIndexTest";
+    private static final long TEST_USER_ID = 900_000_005L;
+    private static final long OTHER_USER_ID = 900_000_006L;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        databaseHelper = DatabaseHelper.getInstance(context);
+        clearLibraries();
+
+        databaseHelper.insertLibraryTracks(TEST_USER_ID, Arrays.asList(
+                new Track(1, "Lose Yourself", "Eminem", "8 Mile", null, null, 326, false),
+                new Track(2, "Without Me", "Eminem", "The Eminem Show", null, null, 290, false),
+                new Track(3, "Yourself", "Someone Else", "Singles", null, null, 200, false),
+                new Track(4, "Bohemian Rhapsody", "Queen", "A Night at the Opera", null, null, 354, false)));
+        databaseHelper.insertLibraryTrack(OTHER_USER_ID,
+                new Track(5, "Lose Control", "Other", "Other", null, null, 200, false));
+    }
+
+    @After
+    public void tearDown() {
+        clearLibraries();
+    }
+
+    @Test
+    public void searchLibrary_prefixMatchesAcrossColumns() {
+        assertEquals(Arrays.asList(4L), ids(databaseHelper.searchLibrary(TEST_USER_ID, "bohem", 10)));
+        assertEquals(Arrays.asList(4L), ids(databaseHelper.searchLibrary(TEST_USER_ID, "queen", 10)));
+        assertEquals(Arrays.asList(4L), ids(databaseHelper.searchLibrary(TEST_USER_ID, "night opera", 10)));
+        assertTrue(databaseHelper.searchLibrary(TEST_USER_ID, "zzz", 10).isEmpty());
+    }
+
+    @Test
+    public void searchLibrary_onlyReturnsOwnTracks() {
+        assertEquals(Arrays.asList(1L), ids(databaseHelper.searchLibrary(TEST_USER_ID, "lose", 10)));
+    }
+
+    @Test
+    public void searchLibrary_ranksTitleMatchesFirst() {
+        List<Long> ranked = ids(databaseHelper.searchLibrary(TEST_USER_ID, "eminem", 10));
+        // Both are by Eminem, but 2 also has it in the album title
+        assertEquals(Arrays.asList(2L, 1L), ranked);
+
+        // A title hit outranks an artist-only hit on the same word
+        databaseHelper.insertLibraryTrack(TEST_USER_ID,
+                new Track(6, "Queen of Hearts", "Somebody", "Singles", null, null, 200, false));
+        assertEquals(Arrays.asList(6L, 4L), ids(databaseHelper.searchLibrary(TEST_USER_ID, "queen", 10)));
+    }
+
+    @Test
+    public void triggersKeepIndexInSync() {
+        databaseHelper.deleteLibraryTrack(TEST_USER_ID, 4);
+        assertTrue(databaseHelper.searchLibrary(TEST_USER_ID, "bohemian", 10).isEmpty());
+
+        databaseHelper.getWritableDatabase().execSQL("UPDATE " + DatabaseHelper.TABLE_LIBRARY_TRACKS +
+                " SET " + DatabaseHelper.COLUMN_TITLE + " = 'Stan' WHERE " +
+                DatabaseHelper.COLUMN_USER_ID_FK + " = " + TEST_USER_ID + " AND " +
+                DatabaseHelper.COLUMN_TRACK_ID + " = 2");
+        assertTrue(databaseHelper.searchLibrary(TEST_USER_ID, "without", 10).isEmpty());
+        assertEquals(Arrays.asList(2L), ids(databaseHelper.searchLibrary(TEST_USER_ID, "stan", 10)));
+    }
+
+    @Test
+    public void searchLibrary_latency() {
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            tracks.add(new Track(1_000 + i, "Song " + i, "Artist " + (i % 200), "Album " + (i % 700), null, null, 180, false));
+        }
+        databaseHelper.insertLibraryTracks(TEST_USER_ID, tracks);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            databaseHelper.searchLibrary(TEST_USER_ID, "artist " + (i % 200), 5);
+        }
+        Log.i(TAG, String.format("searchLibrary over 5k tracks: %.2f ms per query",
+                (System.nanoTime() - start) / 1e6 / 100));
+    }
+
+    private static List<Long> ids(List<Track> tracks) {
+        List<Long> ids = new ArrayList<>();
+        for (Track track : tracks) {
+            ids.add(track.getId());
+        }
+        return ids;
+    }
+
+    private void clearLibraries() {
+        databaseHelper.getWritableDatabase().delete(
+                DatabaseHelper.TABLE_LIBRARY_TRACKS,
+                DatabaseHelper.COLUMN_USER_ID_FK + " IN (?, ?)",
+                new String[]{String.valueOf(TEST_USER_ID), String.valueOf(OTHER_USER_ID)});
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mp3player.services;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Shuffled play through a large queue: copying and shuffling the whole list up front
+ * versus PlaybackQueue, which draws each next entry only when it is needed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlaybackQueueBenchmark {
+    private static final String TAG = "PlaybackQueueBenchmark";
+    private static final int TRACKS = 100_000;
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void shuffledWalk_100k() {
+        List<Track> tracks = tracks(TRACKS);
+        Random random = new Random(8);
+
+        // Warm up
+        for (int i = 0; i < 3; i++) {
+            walkEager(tracks, random);
+            walkLazy(tracks, random);
+        }
+
+        long eagerStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            walkEager(tracks, random);
+        }
+        long eagerNanos = System.nanoTime() - eagerStart;
+
+        long lazyStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(TRACKS, walkLazy(tracks, random));
+        }
+        long lazyNanos = System.nanoTime() - lazyStart;
+
+        Log.i(TAG, String.format("Shuffled walk of %d tracks: copy and shuffle %.3f ms, lazy queue %.3f ms (%.1f ns/step)",
+                TRACKS,
+                eagerNanos / 1e6 / ROUNDS,
+                lazyNanos / 1e6 / ROUNDS,
+                (double) lazyNanos / ROUNDS / TRACKS));
+    }
+
+    @Test
+    public void startAndFirstSteps_100k() {
+        List<Track> tracks = tracks(TRACKS);
+        Random random = new Random(9);
+        int steps = 10;
+
+        long eagerStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            List<Track> copy = new ArrayList<>(tracks);
+            Collections.shuffle(copy, random);
+            for (int step = 0; step < steps; step++) {
+                copy.get(step);
+            }
+        }
+        long eagerNanos = System.nanoTime() - eagerStart;
+
+        long lazyStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            PlaybackQueue queue = new PlaybackQueue(tracks, i, true, random);
+            for (int step = 0; step < steps; step++) {
+                queue.moveToNext(true);
+            }
+            queue.insertNext(tracks.get(0));
+            queue.enqueue(tracks.get(1));
+        }
+        long lazyNanos = System.nanoTime() - lazyStart;
+
+        Log.i(TAG, String.format("Start %d tracks shuffled and play %d: copy and shuffle %.3f ms, lazy queue %.3f ms",
+                TRACKS, steps,
+                eagerNanos / 1e6 / ROUNDS,
+                lazyNanos / 1e6 / ROUNDS));
+    }
+
+    /**
+     * Shuffle the way a copied ArrayList would be, then step through it
+     */
+    private static void walkEager(List<Track> tracks, Random random) {
+        List<Track> copy = new ArrayList<>(tracks);
+        Collections.shuffle(copy, random);
+        for (int i = 0; i < copy.size(); i++) {
+            copy.get(i);
+        }
+    }
+
+    private static int walkLazy(List<Track> tracks, Random random) {
+        PlaybackQueue queue = new PlaybackQueue(tracks, 0, true, random);
+        int played = 1;
+        while (queue.moveToNext(true) >= 0) {
+            played++;
+        }
+        return played;
+    }
+
+    private static List<Track> tracks(int count) {
+        List<Track> tracks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tracks.add(new Track(i, "Track " + i, "Artist", "Album", null, "https://cdns-preview/" + i + ".mp3", 30, false));
+        }
+        return tracks;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.mp3player.utils;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Starting playback from a large library: scanning and copying the list on every
+ * click versus handing over a shared TrackList and looking the track up by ID.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackListBenchmark {
+    private static final String TAG = "TrackListBenchmark";
+    private static final int TRACKS = 10_000;
+    private static final int ROUNDS = 1_000;
+
+    @Test
+    public void startFromLibrary_10k() {
+        List<Track> library = new ArrayList<>(TRACKS);
+        for (int i = 0; i < TRACKS; i++) {
+            library.add(track(i));
+        }
+        TrackList shared = TrackList.copyOf(library);
+        Track picked = library.get(TRACKS - 1);
+        long sink = 0;
+
+        // Warm up
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += library.indexOf(picked) + shared.indexOfId(i);
+        }
+
+        // What a click used to cost: contains, indexOf and a copy of the list
+        long copyStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            if (library.contains(picked)) {
+                sink += library.indexOf(picked) + new ArrayList<>(library).size();
+            }
+        }
+        long copyNanos = System.nanoTime() - copyStart;
+
+        long sharedStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += shared.indexOfId(picked.getId()) + TrackList.copyOf(shared).size();
+        }
+        long sharedNanos = System.nanoTime() - sharedStart;
+
+        assertTrue(sink > 0);
+        Log.i(TAG, String.format("Start playback from %d tracks: scan and copy %.1f us, shared list %.3f us",
+                TRACKS,
+                copyNanos / 1e3 / ROUNDS,
+                sharedNanos / 1e3 / ROUNDS));
+    }
+
+    private static Track track(long id) {
+        Track track = new Track();
+        track.setId(id);
+        track.setTitle("Track " + id);
+        return track;
+    }
+}
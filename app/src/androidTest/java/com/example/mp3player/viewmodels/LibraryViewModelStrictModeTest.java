@@ -0,0 +1,181 @@
+package com.example.mp3player.viewmodels;
+
+import android.app.Application;
+import android.os.Build;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.mp3player.database.DatabaseHelper;
+import com.example.mp3player.models.Track;
+import com.example.mp3player.models.User;
+import com.example.mp3player.repositories.UserRepository;
+import com.example.mp3player.utils.TrackPager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the library flows on the main looper under a StrictMode policy that
+ * records disk reads and writes, and fails if any of them touched the database
+ * on the main thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LibraryViewModelStrictModeTest {
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final long TEST_TRACK_ID = 900_000_100L;
+
+    private final List<Violation> violations = new CopyOnWriteArrayList<>();
+
+    private Application application;
+    private DatabaseHelper databaseHelper;
+    private UserRepository userRepository;
+    private User user;
+    private LibraryViewModel viewModel;
+    private StrictMode.ThreadPolicy previousPolicy;
+
+    @Before
+    public void setUp() {
+        // penaltyListener is API 28+
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.P);
+
+        application = (Application) InstrumentationRegistry.getInstrumentation()
+                .getTargetContext().getApplicationContext();
+        databaseHelper = DatabaseHelper.getInstance(application);
+
+        // Registering also stores the session the view model's UserRepository picks up
+        String username = "strict" + (System.currentTimeMillis() % 1_000_000);
+        userRepository = new UserRepository(application);
+        user = userRepository.register(username, username + "@example.com", "secret123");
+        assertNotNull(user);
+
+        // Build the view model first: preferences and cache directories are set up on
+        // construction and are not what this test is about
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            viewModel = new LibraryViewModel(application);
+            previousPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyListener(Runnable::run, violations::add)
+                    .build());
+        });
+    }
+
+    @After
+    public void tearDown() {
+        if (previousPolicy != null) {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                    () -> StrictMode.setThreadPolicy(previousPolicy));
+        }
+        if (user != null) {
+            databaseHelper.deleteLibraryTrack(user.getId(), TEST_TRACK_ID);
+            databaseHelper.getWritableDatabase().delete(DatabaseHelper.TABLE_USERS,
+                    DatabaseHelper.COLUMN_USER_ID + " = ?", new String[]{String.valueOf(user.getId())});
+            userRepository.logout();
+        }
+    }
+
+    @Test
+    public void policyDetectsMainThreadQueries() {
+        // Guards the other tests: a direct query on the main thread must be reported
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                () -> databaseHelper.isTrackInLibrary(user.getId(), TEST_TRACK_ID));
+
+        assertFalse(violations.isEmpty());
+    }
+
+    @Test
+    public void loadLibrary_doesNoDiskIoOnMainThread() throws InterruptedException {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> viewModel.loadLibrary());
+
+        awaitValue(viewModel.getLibraryTracks(), pager -> pager != null);
+        assertNoViolations();
+    }
+
+    @Test
+    public void addAndRemove_doNoDiskIoOnMainThread() throws InterruptedException {
+        Track track = new Track(TEST_TRACK_ID, "Strict", "Mode", "Test", null, null, 30, false);
+        // Changes are applied to the list on screen, so load it first
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> viewModel.loadLibrary());
+        awaitValue(viewModel.getLibraryTracks(), pager -> pager != null);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> viewModel.addToLibrary(track));
+        TrackPager afterAdd = awaitValue(viewModel.getLibraryTracks(), pager -> pager != null && contains(pager, TEST_TRACK_ID));
+        assertTrue(contains(afterAdd, TEST_TRACK_ID));
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> viewModel.removeFromLibrary(TEST_TRACK_ID));
+        TrackPager afterRemove = awaitValue(viewModel.getLibraryTracks(), pager -> pager != null && !contains(pager, TEST_TRACK_ID));
+        assertFalse(contains(afterRemove, TEST_TRACK_ID));
+
+        assertNoViolations();
+    }
+
+    @Test
+    public void userRepositoryConstructor_doesNoDatabaseIoOnMainThread() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            UserRepository repository = new UserRepository(application);
+            // The saved session is usable before the database answers
+            assertNotNull(repository.getCurrentUser());
+            assertEquals(user.getId(), repository.getCurrentUser().getId());
+        });
+
+        assertNoViolations();
+    }
+
+    private void assertNoViolations() {
+        if (!violations.isEmpty()) {
+            throw new AssertionError("Disk I/O on the main thread", violations.get(0));
+        }
+    }
+
+    /**
+     * Wait until a LiveData holds a value matching the predicate
+     * @return The matching value
+     */
+    private static <T> T awaitValue(LiveData<T> liveData, Predicate<T> predicate) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Object[] result = new Object[1];
+        Observer<T> observer = value -> {
+            if (predicate.test(value)) {
+                result[0] = value;
+                latch.countDown();
+            }
+        };
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> liveData.observeForever(observer));
+        try {
+            assertTrue("Timed out waiting for LiveData", latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> liveData.removeObserver(observer));
+        }
+
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+
+    private static boolean contains(TrackPager pager, long trackId) {
+        for (Track track : pager.getResidentTracks()) {
+            if (track.getId() == trackId) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
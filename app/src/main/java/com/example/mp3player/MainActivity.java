@@ -20,6 +20,7 @@ import com.example.mp3player.ui.home.HomeFragment;
 import com.example.mp3player.ui.library.LibraryFragment;
 import com.example.mp3player.ui.player.MiniPlayerView;
 import com.example.mp3player.ui.search.SearchFragment;
+import com.example.mp3player.utils.TrackList;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 import java.util.List;
@@ -32,6 +33,28 @@ public class MainActivity extends AppCompatActivity {
     private MusicService musicService;
     private boolean serviceBound = false;
     
+    private final MusicService.OnPlaybackStateChangeListener playbackListener = new MusicService.OnPlaybackStateChangeListener() {
+        @Override
+        public void onPlaybackStateChanged(boolean isPlaying) {
+            if (miniPlayerView != null) {
+                miniPlayerView.updatePlaybackState(isPlaying);
+            }
+        }
+        
+        @Override
+        public void onTrackChanged(Track track) {
+            if (miniPlayerView != null) {
+                miniPlayerView.updateTrackInfo(track);
+                showMiniPlayer();
+            }
+        }
+        
+        @Override
+        public void onProgressChanged(int position, int duration) {
+            // Not needed for mini player
+        }
+    };
+    
     private ServiceConnection serviceConnection = new ServiceConnection() {
         @Override
         public void onServiceConnected(ComponentName name, IBinder service) {
@@ -39,36 +62,8 @@ public class MainActivity extends AppCompatActivity {
             musicService = binder.getService();
             serviceBound = true;
             
-            // Setup playback state listener
-            musicService.setPlaybackStateChangeListener(new MusicService.OnPlaybackStateChangeListener() {
-                @Override
-                public void onPlaybackStateChanged(boolean isPlaying) {
-                    if (miniPlayerView != null) {
-                        miniPlayerView.updatePlaybackState(isPlaying);
-                    }
-                }
-                
-                @Override
-                public void onTrackChanged(Track track) {
-                    if (miniPlayerView != null) {
-                        miniPlayerView.updateTrackInfo(track);
-                        showMiniPlayer();
-                    }
-                }
-                
-                @Override
-                public void onProgressChanged(int position, int duration) {
-                    // Not needed for mini player
-                }
-            });
-            
-            // Update mini player with current track if any
-            Track currentTrack = musicService.getCurrentTrack();
-            if (currentTrack != null) {
-                miniPlayerView.updateTrackInfo(currentTrack);
-                miniPlayerView.updatePlaybackState(musicService.isPlaying());
-                showMiniPlayer();
-            }
+            // Replays the current track and state, so the mini player is up to date at once
+            musicService.addPlaybackStateChangeListener(playbackListener);
         }
         
         @Override
@@ -169,6 +164,25 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
+    /**
+     * Queue a list and play one of its tracks, or just that track if it is not in the list
+     * @param tracks The list shown on screen; pass a TrackList to skip the copy
+     * @param track The track the user picked
+     */
+    public void playTracks(List<Track> tracks, Track track) {
+        if (tracks == null) {
+            playTrack(track);
+            return;
+        }
+        TrackList queue = TrackList.copyOf(tracks);
+        int index = queue.indexOfId(track.getId());
+        if (index >= 0) {
+            playTracks(queue, index);
+        } else {
+            playTrack(track);
+        }
+    }
+    
     public MusicService getMusicService() {
         return musicService;
     }
@@ -192,23 +206,12 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Update mini player when returning from PlayerActivity
-        if (serviceBound && musicService != null) {
-            Track currentTrack = musicService.getCurrentTrack();
-            if (currentTrack != null) {
-                miniPlayerView.updateTrackInfo(currentTrack);
-                miniPlayerView.updatePlaybackState(musicService.isPlaying());
-                showMiniPlayer();
-            }
-        }
-    }
-    
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (musicService != null) {
+            musicService.removePlaybackStateChangeListener(playbackListener);
+        }
         if (serviceBound) {
             unbindService(serviceConnection);
             serviceBound = false;
@@ -14,7 +14,7 @@ public class TestRegistration {
         Log.d(TAG, "Starting database insert test");
         
         try {
-            DatabaseHelper dbHelper = new DatabaseHelper(context);
+            DatabaseHelper dbHelper = DatabaseHelper.getInstance(context);
             
             User testUser = new User();
             testUser.setUsername("testuser" + System.currentTimeMillis());
@@ -0,0 +1,67 @@
+package com.example.mp3player.api;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Freshness policy for cached Deezer responses, per endpoint.
+ * Deezer does not send useful Cache-Control headers, so the client rewrites them
+ * with these values; once a response goes stale OkHttp revalidates it with
+ * If-None-Match / If-Modified-Since when the server supplied an ETag or Last-Modified.
+ */
+public class CachePolicy {
+    private static final String API_HOST = "api.deezer.com";
+
+    private volatile long chartMaxAgeSeconds = TimeUnit.MINUTES.toSeconds(10);
+    private volatile long searchMaxAgeSeconds = TimeUnit.MINUTES.toSeconds(5);
+    private volatile long trackMaxAgeSeconds = TimeUnit.DAYS.toSeconds(7);
+
+    /**
+     * Get how long a response for the given URL may be served without revalidation
+     * @param url The request URL
+     * @return Max age in seconds, 0 if the endpoint should not be cached
+     */
+    public long maxAgeSecondsFor(HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        if (!API_HOST.equals(url.host()) || segments.isEmpty()) {
+            return 0;
+        }
+
+        switch (segments.get(0)) {
+            case "chart":
+                return chartMaxAgeSeconds;
+            case "search":
+                return searchMaxAgeSeconds;
+            case "track":
+                return trackMaxAgeSeconds;
+            default:
+                return 0;
+        }
+    }
+
+    public long getChartMaxAgeSeconds() {
+        return chartMaxAgeSeconds;
+    }
+
+    public void setChartMaxAge(long duration, TimeUnit unit) {
+        this.chartMaxAgeSeconds = unit.toSeconds(duration);
+    }
+
+    public long getSearchMaxAgeSeconds() {
+        return searchMaxAgeSeconds;
+    }
+
+    public void setSearchMaxAge(long duration, TimeUnit unit) {
+        this.searchMaxAgeSeconds = unit.toSeconds(duration);
+    }
+
+    public long getTrackMaxAgeSeconds() {
+        return trackMaxAgeSeconds;
+    }
+
+    public void setTrackMaxAge(long duration, TimeUnit unit) {
+        this.trackMaxAgeSeconds = unit.toSeconds(duration);
+    }
+}
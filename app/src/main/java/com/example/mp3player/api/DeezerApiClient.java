@@ -1,14 +1,13 @@
 package com.example.mp3player.api;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonArray;
+import android.content.Context;
 
+import com.example.mp3player.models.TrackPage;
+
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import okhttp3.Response;
-import okhttp3.Call;
-import okhttp3.Callback;
+import okhttp3.ResponseBody;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -16,191 +15,168 @@ import java.util.List;
 
 public class DeezerApiClient {
     private static final String BASE_URL = "https://api.deezer.com/";
+    public static final int SEARCH_PAGE_SIZE = 25;
+    public static final int CHART_PAGE_SIZE = 20;
+    
+    // Identical concurrent requests share one Call, across all client instances
+    // Callers mark and page through results in place, so each one gets its own tracks
+    private static final SingleFlight<TrackPage> pageFlights = new SingleFlight<>(DeezerApiClient::copyPage);
+    private static final SingleFlight<com.example.mp3player.models.Track> trackFlights =
+            new SingleFlight<>(com.example.mp3player.models.Track::new);
     
     private final OkHttpClient httpClient;
-    private final Gson gson;
     
-    public DeezerApiClient() {
-        this.httpClient = new OkHttpClient();
-        this.gson = new Gson();
+    public DeezerApiClient(Context context) {
+        // Application-scoped client: one connection pool, dispatcher and cache for all screens
+        this.httpClient = HttpClientProvider.getClient(context);
     }
     
-    // Callback interfaces
+    /**
+     * Get the freshness policy applied to cached responses
+     * @return The shared cache policy, which can be tuned at runtime
+     */
+    public static CachePolicy getCachePolicy() {
+        return HttpClientProvider.getCachePolicy();
+    }
     
-    public interface SearchCallback {
-        void onSuccess(List<com.example.mp3player.models.Track> tracks);
-        void onError(Exception e);
+    /**
+     * Get hit, miss and revalidation counts for the HTTP cache
+     * @return The shared cache statistics
+     */
+    public static HttpCacheStats getCacheStats() {
+        return HttpClientProvider.getCacheStats();
     }
     
+    /**
+     * Get how many requests joined an identical in-flight call instead of starting their own
+     * @return Number of deduplicated requests since process start
+     */
+    public static long getDeduplicatedRequestCount() {
+        return pageFlights.getDeduplicatedCount() + trackFlights.getDeduplicatedCount();
+    }
+    
+    /**
+     * Get how many network calls were actually started
+     * @return Number of executed calls since process start
+     */
+    public static long getExecutedRequestCount() {
+        return pageFlights.getExecutedCount() + trackFlights.getExecutedCount();
+    }
+    
+    /**
+     * Get how many network calls were cancelled because no caller wanted the result anymore
+     * @return Number of cancelled calls since process start
+     */
+    public static long getCancelledRequestCount() {
+        return pageFlights.getCancelledCount() + trackFlights.getCancelledCount();
+    }
+    
+    // Callback interfaces
+    
     public interface TrackCallback {
         void onSuccess(com.example.mp3player.models.Track track);
         void onError(Exception e);
     }
     
-    public interface ChartCallback {
-        void onSuccess(List<com.example.mp3player.models.Track> tracks);
+    public interface PageCallback {
+        void onSuccess(TrackPage page);
         void onError(Exception e);
     }
     
     /**
-     * Search for tracks by query
+     * Get one page of search results
      * @param query The search query
-     * @param callback Callback for handling results
+     * @param index Index of the first result, taken from the previous page's next cursor
+     * @param limit Maximum number of results in the page
+     * @param callback Callback for handling the page
+     * @return Handle for cancelling the request
      */
-    public void searchTracks(String query, final SearchCallback callback) {
-        String url = BASE_URL + "search?q=" + query;
-        
-        Request request = new Request.Builder()
-                .url(url)
+    public RequestHandle searchTracksPage(String query, int index, int limit, final PageCallback callback) {
+        HttpUrl url = HttpUrl.get(BASE_URL).newBuilder()
+                .addPathSegment("search")
+                .addQueryParameter("q", query)
+                .addQueryParameter("index", String.valueOf(index))
+                .addQueryParameter("limit", String.valueOf(limit))
                 .build();
         
-        httpClient.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                callback.onError(e);
-            }
-            
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    callback.onError(new IOException("Unexpected code " + response));
-                    return;
-                }
-                
-                try {
-                    String responseBody = response.body().string();
-                    JsonObject jsonObject = gson.fromJson(responseBody, JsonObject.class);
-                    JsonArray dataArray = jsonObject.getAsJsonArray("data");
-                    
-                    List<com.example.mp3player.models.Track> tracks = parseTracksFromJson(dataArray);
-                    callback.onSuccess(tracks);
-                } catch (Exception e) {
-                    callback.onError(e);
-                }
-            }
-        });
+        return executePage(url, callback);
     }
     
     /**
      * Get track details by ID
      * @param trackId The track ID
      * @param callback Callback for handling result
+     * @return Handle for cancelling the request
      */
-    public void getTrack(long trackId, final TrackCallback callback) {
+    public RequestHandle getTrack(long trackId, final TrackCallback callback) {
         String url = BASE_URL + "track/" + trackId;
         
         Request request = new Request.Builder()
                 .url(url)
                 .build();
         
-        httpClient.newCall(request).enqueue(new Callback() {
+        return trackFlights.execute(httpClient, request, body -> DeezerJsonParser.parseTrack(body.charStream()),
+                new SingleFlight.Listener<com.example.mp3player.models.Track>() {
             @Override
-            public void onFailure(Call call, IOException e) {
-                callback.onError(e);
+            public void onSuccess(com.example.mp3player.models.Track track) {
+                callback.onSuccess(track);
             }
             
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    callback.onError(new IOException("Unexpected code " + response));
-                    return;
-                }
-                
-                try {
-                    String responseBody = response.body().string();
-                    JsonObject jsonObject = gson.fromJson(responseBody, JsonObject.class);
-                    
-                    com.example.mp3player.models.Track track = parseTrackFromJson(jsonObject);
-                    callback.onSuccess(track);
-                } catch (Exception e) {
-                    callback.onError(e);
-                }
+            public void onError(Exception e) {
+                callback.onError(e);
             }
         });
     }
     
     /**
-     * Get chart (popular/recommended tracks)
-     * @param callback Callback for handling results
+     * Get one page of the chart
+     * @param index Index of the first track, taken from the previous page's next cursor
+     * @param limit Maximum number of tracks in the page
+     * @param callback Callback for handling the page
+     * @return Handle for cancelling the request
      */
-    public void getChart(final ChartCallback callback) {
-        String url = BASE_URL + "chart/0/tracks?limit=20";
+    public RequestHandle getChartPage(int index, int limit, final PageCallback callback) {
+        HttpUrl url = HttpUrl.get(BASE_URL).newBuilder()
+                .addPathSegments("chart/0/tracks")
+                .addQueryParameter("index", String.valueOf(index))
+                .addQueryParameter("limit", String.valueOf(limit))
+                .build();
         
+        return executePage(url, callback);
+    }
+    
+    private RequestHandle executePage(HttpUrl url, final PageCallback callback) {
         Request request = new Request.Builder()
                 .url(url)
                 .build();
         
-        httpClient.newCall(request).enqueue(new Callback() {
+        return pageFlights.execute(httpClient, request, DeezerApiClient::parseTrackPage,
+                new SingleFlight.Listener<TrackPage>() {
             @Override
-            public void onFailure(Call call, IOException e) {
-                callback.onError(e);
+            public void onSuccess(TrackPage page) {
+                callback.onSuccess(page);
             }
             
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    callback.onError(new IOException("Unexpected code " + response));
-                    return;
-                }
-                
-                try {
-                    String responseBody = response.body().string();
-                    JsonObject jsonObject = gson.fromJson(responseBody, JsonObject.class);
-                    JsonArray dataArray = jsonObject.getAsJsonArray("data");
-                    
-                    List<com.example.mp3player.models.Track> tracks = parseTracksFromJson(dataArray);
-                    callback.onSuccess(tracks);
-                } catch (Exception e) {
-                    callback.onError(e);
-                }
+            public void onError(Exception e) {
+                callback.onError(e);
             }
         });
     }
     
-    /**
-     * Parse a list of tracks from JSON array
-     */
-    private List<com.example.mp3player.models.Track> parseTracksFromJson(JsonArray dataArray) {
-        List<com.example.mp3player.models.Track> tracks = new ArrayList<>();
-        
-        for (int i = 0; i < dataArray.size(); i++) {
-            JsonObject trackJson = dataArray.get(i).getAsJsonObject();
-            com.example.mp3player.models.Track track = parseTrackFromJson(trackJson);
-            tracks.add(track);
+    private static TrackPage copyPage(TrackPage page) {
+        List<com.example.mp3player.models.Track> tracks = new ArrayList<>(page.getTracks().size());
+        for (com.example.mp3player.models.Track track : page.getTracks()) {
+            tracks.add(new com.example.mp3player.models.Track(track));
         }
-        
-        return tracks;
+        return new TrackPage(tracks, page.getTotal(), page.getNextIndex());
     }
     
     /**
-     * Parse a single track from JSON object
+     * Decode a list response straight from the socket stream, no body string or JSON tree
      */
-    private com.example.mp3player.models.Track parseTrackFromJson(JsonObject trackJson) {
-        com.example.mp3player.models.Track track = new com.example.mp3player.models.Track();
-        
-        track.setId(trackJson.get("id").getAsLong());
-        track.setTitle(trackJson.get("title").getAsString());
-        track.setPreviewUrl(trackJson.get("preview").getAsString());
-        track.setDuration(trackJson.get("duration").getAsInt());
-        
-        // Artist
-        if (trackJson.has("artist")) {
-            JsonObject artistJson = trackJson.getAsJsonObject("artist");
-            track.setArtist(artistJson.get("name").getAsString());
-        }
-        
-        // Album
-        if (trackJson.has("album")) {
-            JsonObject albumJson = trackJson.getAsJsonObject("album");
-            track.setAlbum(albumJson.get("title").getAsString());
-            
-            if (albumJson.has("cover_medium")) {
-                track.setArtworkUrl(albumJson.get("cover_medium").getAsString());
-            }
-        }
-        
-        track.setInLibrary(false);
-        
-        return track;
+    private static TrackPage parseTrackPage(ResponseBody body) throws IOException {
+        return DeezerJsonParser.parseTrackPage(body.charStream());
     }
 }
@@ -0,0 +1,237 @@
+package com.example.mp3player.api;
+
+import com.example.mp3player.models.Track;
+import com.example.mp3player.models.TrackPage;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming decoder for Deezer API responses.
+ * Reads tracks token by token so no intermediate JSON tree or body string is built.
+ */
+public final class DeezerJsonParser {
+
+    private DeezerJsonParser() {
+    }
+
+    /**
+     * Parse the "data" array of a list response (search, chart) into tracks
+     * @param in Character stream of the response body
+     * @return List of parsed tracks
+     * @throws IOException if the stream is malformed or the API returned an error
+     */
+    public static List<Track> parseTrackList(Reader in) throws IOException {
+        return parseTrackPage(in).getTracks();
+    }
+
+    /**
+     * Parse one page of a list response, including Deezer's "total" and "next" cursor
+     * @param in Character stream of the response body
+     * @return The parsed page
+     * @throws IOException if the stream is malformed or the API returned an error
+     */
+    public static TrackPage parseTrackPage(Reader in) throws IOException {
+        List<Track> tracks = null;
+        int total = -1;
+        int nextIndex = -1;
+
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("data".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    tracks = readTrackArray(reader);
+                } else if ("total".equals(name) && reader.peek() == JsonToken.NUMBER) {
+                    total = reader.nextInt();
+                } else if ("next".equals(name) && reader.peek() == JsonToken.STRING) {
+                    nextIndex = parseIndexParam(reader.nextString());
+                } else if ("error".equals(name)) {
+                    throw readError(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        if (tracks == null) {
+            throw new IOException("Response has no data array");
+        }
+        return new TrackPage(tracks, total, nextIndex);
+    }
+
+    /**
+     * Parse a single track response (track/{id})
+     * @param in Character stream of the response body
+     * @return The parsed track
+     * @throws IOException if the stream is malformed or the API returned an error
+     */
+    public static Track parseTrack(Reader in) throws IOException {
+        try (JsonReader reader = new JsonReader(in)) {
+            return readTrack(reader);
+        }
+    }
+
+    /**
+     * Check whether a response body is one of Deezer's error objects.
+     * Only the first field is read, so a prefix of the body is enough.
+     * @param in Character stream of the response body, or of its first bytes
+     * @return true if the body is {"error": ...}
+     */
+    static boolean isApiError(Reader in) {
+        try (JsonReader reader = new JsonReader(in)) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return false;
+            }
+            reader.beginObject();
+            return reader.hasNext() && "error".equals(reader.nextName());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Extract the "index" query parameter from a Deezer "next" URL
+     * @return The index, or -1 if the URL has none
+     */
+    static int parseIndexParam(String url) {
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return -1;
+        }
+
+        for (String param : url.substring(query + 1).split("&")) {
+            if (param.startsWith("index=")) {
+                try {
+                    return Integer.parseInt(param.substring("index=".length()));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static List<Track> readTrackArray(JsonReader reader) throws IOException {
+        List<Track> tracks = new ArrayList<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            tracks.add(readTrack(reader));
+        }
+        reader.endArray();
+
+        return tracks;
+    }
+
+    /**
+     * Read one track object, including its nested artist and album objects
+     */
+    private static Track readTrack(JsonReader reader) throws IOException {
+        Track track = new Track();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "id":
+                    track.setId(reader.nextLong());
+                    break;
+                case "title":
+                    track.setTitle(reader.nextString());
+                    break;
+                case "preview":
+                    track.setPreviewUrl(reader.nextString());
+                    break;
+                case "duration":
+                    track.setDuration(reader.nextInt());
+                    break;
+                case "artist":
+                    readArtist(reader, track);
+                    break;
+                case "album":
+                    readAlbum(reader, track);
+                    break;
+                case "error":
+                    throw readError(reader);
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        track.setInLibrary(false);
+        return track;
+    }
+
+    private static void readArtist(JsonReader reader, Track track) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("name".equals(name) && reader.peek() != JsonToken.NULL) {
+                track.setArtist(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readAlbum(JsonReader reader, Track track) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if ("title".equals(name)) {
+                track.setAlbum(reader.nextString());
+            } else if ("cover_small".equals(name)) {
+                track.setArtworkSmallUrl(reader.nextString());
+            } else if ("cover_medium".equals(name)) {
+                track.setArtworkUrl(reader.nextString());
+            } else if ("cover_big".equals(name)) {
+                track.setArtworkBigUrl(reader.nextString());
+            } else if ("cover_xl".equals(name)) {
+                track.setArtworkXlUrl(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Deezer reports failures as {"error": {"type": ..., "message": ..., "code": ...}} with HTTP 200
+     */
+    private static IOException readError(JsonReader reader) throws IOException {
+        String message = null;
+
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("message".equals(name) && reader.peek() == JsonToken.STRING) {
+                    message = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } else {
+            reader.skipValue();
+        }
+
+        return new IOException("Deezer API error: " + (message != null ? message : "unknown"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.mp3player.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Response;
+
+/**
+ * Counters for how Deezer requests were served by the HTTP cache
+ */
+public class HttpCacheStats {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    /**
+     * Classify a completed response by where its body came from
+     * @param response The response returned to the caller
+     */
+    void record(Response response) {
+        Response cacheResponse = response.cacheResponse();
+        Response networkResponse = response.networkResponse();
+
+        if (cacheResponse != null && networkResponse == null) {
+            hits.incrementAndGet();
+        } else if (cacheResponse != null) {
+            // Conditional request was sent for a stale entry
+            revalidations.incrementAndGet();
+            if (networkResponse.code() == 304) {
+                notModified.incrementAndGet();
+            }
+        } else {
+            misses.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return Responses served from disk without touching the network
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Responses fetched in full from the network
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Stale entries revalidated with a conditional request
+     */
+    public long getRevalidationCount() {
+        return revalidations.get();
+    }
+
+    /**
+     * @return Revalidations answered with 304, i.e. the cached body was reused
+     */
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        revalidations.set(0);
+        notModified.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCacheStats{hits=" + hits.get() +
+                ", misses=" + misses.get() +
+                ", revalidations=" + revalidations.get() +
+                ", notModified=" + notModified.get() + "}";
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.mp3player.api;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Holds the single OkHttpClient used by the whole app, so every screen shares one
+ * connection pool, dispatcher and disk cache, and TLS sessions to Deezer are reused.
+ */
+public final class HttpClientProvider {
+    private static final String CACHE_DIR_NAME = "http_cache";
+    private static final long CACHE_SIZE_BYTES = 10L * 1024 * 1024; // 10 MB
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 32;
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long READ_TIMEOUT_SECONDS = 20;
+    private static final long WRITE_TIMEOUT_SECONDS = 20;
+    // Deezer's error objects are short; a success body never starts with "error"
+    private static final long ERROR_PEEK_BYTES = 256;
+
+    private static final CachePolicy cachePolicy = new CachePolicy();
+    private static final HttpCacheStats cacheStats = new HttpCacheStats();
+
+    private static volatile OkHttpClient client;
+
+    private HttpClientProvider() {
+    }
+
+    /**
+     * Get the application-scoped client, creating it on first use
+     * @param context Any context; only its application context is retained
+     * @return The shared client
+     */
+    public static OkHttpClient getClient(Context context) {
+        OkHttpClient result = client;
+        if (result == null) {
+            synchronized (HttpClientProvider.class) {
+                result = client;
+                if (result == null) {
+                    result = buildClient(context.getApplicationContext());
+                    client = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static OkHttpClient buildClient(Context appContext) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        File cacheDir = new File(appContext.getCacheDir(), CACHE_DIR_NAME);
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .cache(new Cache(cacheDir, CACHE_SIZE_BYTES))
+                .addInterceptor(HttpClientProvider::recordCacheResult)
+                .addNetworkInterceptor(HttpClientProvider::applyCachePolicy)
+                .build();
+    }
+
+    /**
+     * Replace the server's caching headers with our per-endpoint freshness policy.
+     * ETag and Last-Modified are left intact so stale entries can be revalidated.
+     * A 304 is rewritten too: OkHttp merges its headers into the stored entry, so
+     * the server's Cache-Control would otherwise replace the policy on revalidation.
+     */
+    static Response applyCachePolicy(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        long maxAge = cachePolicy.maxAgeSecondsFor(request.url());
+        if (maxAge <= 0) {
+            return response;
+        }
+        if (response.code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+            if (!response.isSuccessful()) {
+                return response;
+            }
+            if (isApiError(response)) {
+                // Deezer sends errors with HTTP 200; caching one would repeat it for the whole max age
+                return withCacheControl(response, "no-store");
+            }
+        }
+
+        return withCacheControl(response, "public, max-age=" + maxAge);
+    }
+
+    private static Response withCacheControl(Response response, String cacheControl) {
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .removeHeader("Expires")
+                .header("Cache-Control", cacheControl)
+                .build();
+    }
+
+    /**
+     * Peek at the start of the body, which network interceptors see before it is gunzipped
+     */
+    private static boolean isApiError(Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return false;
+        }
+
+        Source peeked = body.source().peek();
+        if ("gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+            peeked = new GzipSource(peeked);
+        }
+        try (BufferedSource source = Okio.buffer(peeked)) {
+            source.request(ERROR_PEEK_BYTES);
+            Buffer prefix = source.getBuffer().clone();
+            return DeezerJsonParser.isApiError(new InputStreamReader(prefix.inputStream(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Response recordCacheResult(Interceptor.Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        cacheStats.record(response);
+        return response;
+    }
+
+    /**
+     * Get the freshness policy applied to cached responses
+     * @return The shared cache policy, which can be tuned at runtime
+     */
+    public static CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * Get hit, miss and revalidation counts for the HTTP cache
+     * @return The shared cache statistics
+     */
+    public static HttpCacheStats getCacheStats() {
+        return cacheStats;
+    }
+}
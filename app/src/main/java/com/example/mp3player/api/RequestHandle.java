@@ -0,0 +1,13 @@
+package com.example.mp3player.api;
+
+/**
+ * Handle to a pending API request, used to drop a caller that no longer wants the result
+ */
+public interface RequestHandle {
+
+    /**
+     * Stop delivering the result to this caller. The underlying call is cancelled
+     * once no other caller is waiting on it.
+     */
+    void cancel();
+}
@@ -0,0 +1,195 @@
+package com.example.mp3player.api;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Coalesces identical in-flight requests: while a call for a URL is running,
+ * further requests for the same URL wait on it instead of starting a new call,
+ * and every waiter receives the parsed result. Waiters get their own copy, since
+ * callers change results in place; all copies are made before the first waiter
+ * runs. One waiter throwing does not keep the result from the others.
+ * @param <T> The parsed result type
+ */
+class SingleFlight<T> {
+    private static final String TAG = "SingleFlight";
+
+    interface Listener<T> {
+        void onSuccess(T result);
+        void onError(Exception e);
+    }
+
+    interface BodyParser<T> {
+        T parse(ResponseBody body) throws IOException;
+    }
+
+    /**
+     * One running call and the listeners waiting on it
+     */
+    private static class Flight<T> {
+        final List<Listener<T>> listeners = new ArrayList<>();
+        Call call;
+    }
+
+    private final UnaryOperator<T> copier;
+    private final Map<String, Flight<T>> inFlight = new HashMap<>();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    /**
+     * @param copier Makes an independent copy of a result; the first waiter gets the
+     *               original, every further waiter a copy
+     */
+    SingleFlight(UnaryOperator<T> copier) {
+        this.copier = copier;
+    }
+
+    /**
+     * Run the request, or join an identical request that is already running
+     * @param client The client used if a new call has to be started
+     * @param request The request; its URL is the coalescing key
+     * @param parser Turns a successful body into the result
+     * @param listener Receives the shared result
+     * @return Handle that detaches this listener again
+     */
+    RequestHandle execute(OkHttpClient client, Request request, BodyParser<T> parser, Listener<T> listener) {
+        final String key = request.url().toString();
+        final Flight<T> flight;
+
+        synchronized (inFlight) {
+            Flight<T> existing = inFlight.get(key);
+            if (existing != null) {
+                existing.listeners.add(listener);
+                deduplicatedCount.incrementAndGet();
+                return () -> detach(key, existing, listener);
+            }
+
+            flight = new Flight<>();
+            flight.listeners.add(listener);
+            flight.call = client.newCall(request);
+            inFlight.put(key, flight);
+        }
+
+        executedCount.incrementAndGet();
+        flight.call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                deliverError(key, flight, e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                T result;
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful()) {
+                        deliverError(key, flight, new IOException("Unexpected code " + response));
+                        return;
+                    }
+                    result = parser.parse(body);
+                } catch (Exception e) {
+                    deliverError(key, flight, e);
+                    return;
+                }
+                deliverSuccess(key, flight, result);
+            }
+        });
+
+        return () -> detach(key, flight, listener);
+    }
+
+    /**
+     * Remove a listener; cancel the call if nobody is left waiting on it
+     */
+    private void detach(String key, Flight<T> flight, Listener<T> listener) {
+        Call toCancel = null;
+
+        synchronized (inFlight) {
+            if (!flight.listeners.remove(listener)) {
+                return; // Already delivered or detached
+            }
+            if (flight.listeners.isEmpty() && inFlight.get(key) == flight) {
+                inFlight.remove(key);
+                toCancel = flight.call;
+            }
+        }
+
+        if (toCancel != null) {
+            cancelledCount.incrementAndGet();
+            toCancel.cancel();
+        }
+    }
+
+    private List<Listener<T>> complete(String key, Flight<T> flight) {
+        synchronized (inFlight) {
+            if (inFlight.get(key) == flight) {
+                inFlight.remove(key);
+            }
+            List<Listener<T>> listeners = new ArrayList<>(flight.listeners);
+            flight.listeners.clear();
+            return listeners;
+        }
+    }
+
+    private void deliverSuccess(String key, Flight<T> flight, T result) {
+        List<Listener<T>> listeners = complete(key, flight);
+        // Copy up front: once the first waiter has the original it may change it
+        List<T> results = new ArrayList<>(listeners.size());
+        for (int i = 0; i < listeners.size(); i++) {
+            results.add(i == 0 ? result : copier.apply(result));
+        }
+        for (int i = 0; i < listeners.size(); i++) {
+            try {
+                listeners.get(i).onSuccess(results.get(i));
+            } catch (RuntimeException e) {
+                // Keep going; the other waiters are still owed their result
+                Log.e(TAG, "Listener failed for " + key, e);
+            }
+        }
+    }
+
+    private void deliverError(String key, Flight<T> flight, Exception error) {
+        for (Listener<T> listener : complete(key, flight)) {
+            try {
+                listener.onError(error);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Listener failed for " + key, e);
+            }
+        }
+    }
+
+    /**
+     * @return Number of network calls actually started
+     */
+    long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * @return Number of requests that joined an existing call instead of starting one
+     */
+    long getDeduplicatedCount() {
+        return deduplicatedCount.get();
+    }
+
+    /**
+     * @return Number of calls cancelled because every listener detached
+     */
+    long getCancelledCount() {
+        return cancelledCount.get();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.mp3player.database;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide executors for database work.
+ * Every DatabaseHelper call from UI code goes through here; results are handed
+ * back with LiveData.postValue or posted to the main thread by the caller.
+ * Writes run one at a time on their own thread, in the order they were submitted,
+ * so two quick writes to the same row commit, and publish their library changes,
+ * in that order. Reads use a second thread, so with WAL a read keeps going while
+ * a write commits.
+ */
+public final class DatabaseExecutor {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor("db-io-");
+    private static final ThreadPoolExecutor WRITE_EXECUTOR = createExecutor("db-write-");
+
+    private DatabaseExecutor() {
+    }
+
+    /**
+     * Run a read-only task on a database thread
+     * @param task The task; must not touch views
+     */
+    public static void execute(Runnable task) {
+        EXECUTOR.execute(task);
+    }
+
+    /**
+     * Run a task that writes to the database after every write submitted before it
+     * @param task The task; must not touch views
+     */
+    public static void executeWrite(Runnable task) {
+        WRITE_EXECUTOR.execute(task);
+    }
+
+    /**
+     * @return The shared executor, for APIs that take an Executor
+     */
+    public static Executor get() {
+        return EXECUTOR;
+    }
+
+    /**
+     * @param namePrefix Prefix of the thread name
+     * @return A single-thread executor running tasks in submission order
+     */
+    private static ThreadPoolExecutor createExecutor(String namePrefix) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, namePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                1, 1,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory);
+        // Let the threads go away while the app is idle
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
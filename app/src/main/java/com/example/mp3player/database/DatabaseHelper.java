@@ -3,14 +3,17 @@ package com.example.mp3player.database;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "mp3player.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 4;
+    static final int PAGE_CACHE_SIZE_KB = 4096;
     
     // Table names
     public static final String TABLE_USERS = "users";
     public static final String TABLE_LIBRARY_TRACKS = "library_tracks";
+    public static final String TABLE_LIBRARY_FTS = "library_fts";
     
     // Users table columns
     public static final String COLUMN_USER_ID = "id";
@@ -27,6 +30,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_ARTIST = "artist";
     public static final String COLUMN_ALBUM = "album";
     public static final String COLUMN_ARTWORK_URL = "artwork_url";
+    public static final String COLUMN_ARTWORK_SMALL_URL = "artwork_small_url";
+    public static final String COLUMN_ARTWORK_BIG_URL = "artwork_big_url";
+    public static final String COLUMN_ARTWORK_XL_URL = "artwork_xl_url";
     public static final String COLUMN_PREVIEW_URL = "preview_url";
     public static final String COLUMN_DURATION = "duration";
     public static final String COLUMN_ADDED_AT = "added_at";
@@ -51,6 +57,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         COLUMN_ARTIST + " TEXT NOT NULL, " +
         COLUMN_ALBUM + " TEXT, " +
         COLUMN_ARTWORK_URL + " TEXT, " +
+        COLUMN_ARTWORK_SMALL_URL + " TEXT, " +
+        COLUMN_ARTWORK_BIG_URL + " TEXT, " +
+        COLUMN_ARTWORK_XL_URL + " TEXT, " +
         COLUMN_PREVIEW_URL + " TEXT, " +
         COLUMN_DURATION + " INTEGER, " +
         COLUMN_ADDED_AT + " DATETIME DEFAULT CURRENT_TIMESTAMP, " +
@@ -65,8 +74,87 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String CREATE_INDEX_LIBRARY_TRACK_ID = 
         "CREATE INDEX idx_library_track_id ON " + TABLE_LIBRARY_TRACKS + "(" + COLUMN_TRACK_ID + ")";
     
-    public DatabaseHelper(Context context) {
+    // Serves the keyset-paged library query without a sort step
+    private static final String CREATE_INDEX_LIBRARY_USER_ADDED = 
+        "CREATE INDEX idx_library_user_added ON " + TABLE_LIBRARY_TRACKS +
+        "(" + COLUMN_USER_ID_FK + ", " + COLUMN_ADDED_AT + ", " + COLUMN_LIBRARY_ID + ")";
+    
+    // Newest first; id breaks ties between rows added within the same second
+    private static final String LIBRARY_ORDER = 
+        COLUMN_ADDED_AT + " DESC, " + COLUMN_LIBRARY_ID + " DESC";
+    
+    // Full-text index over library titles, artists and albums. FTS4 with external
+    // content: the text lives only in library_tracks, the index keys rows by its id
+    private static final String CREATE_LIBRARY_FTS_TABLE = 
+        "CREATE VIRTUAL TABLE " + TABLE_LIBRARY_FTS + " USING fts4(" +
+        "content=\"" + TABLE_LIBRARY_TRACKS + "\", " +
+        COLUMN_TITLE + ", " + COLUMN_ARTIST + ", " + COLUMN_ALBUM + ", " +
+        "tokenize=unicode61)";
+    
+    // Keep the index in step with library_tracks; an external-content index must be
+    // told to drop a row while the old values can still be read, hence BEFORE
+    private static final String[] CREATE_LIBRARY_FTS_TRIGGERS = {
+        "CREATE TRIGGER library_fts_ai AFTER INSERT ON " + TABLE_LIBRARY_TRACKS + " BEGIN " +
+            "INSERT INTO " + TABLE_LIBRARY_FTS + "(docid, " + COLUMN_TITLE + ", " + COLUMN_ARTIST + ", " + COLUMN_ALBUM + ") " +
+            "VALUES (new." + COLUMN_LIBRARY_ID + ", new." + COLUMN_TITLE + ", new." + COLUMN_ARTIST + ", new." + COLUMN_ALBUM + "); END",
+        "CREATE TRIGGER library_fts_bd BEFORE DELETE ON " + TABLE_LIBRARY_TRACKS + " BEGIN " +
+            "DELETE FROM " + TABLE_LIBRARY_FTS + " WHERE docid = old." + COLUMN_LIBRARY_ID + "; END",
+        "CREATE TRIGGER library_fts_bu BEFORE UPDATE ON " + TABLE_LIBRARY_TRACKS + " BEGIN " +
+            "DELETE FROM " + TABLE_LIBRARY_FTS + " WHERE docid = old." + COLUMN_LIBRARY_ID + "; END",
+        "CREATE TRIGGER library_fts_au AFTER UPDATE ON " + TABLE_LIBRARY_TRACKS + " BEGIN " +
+            "INSERT INTO " + TABLE_LIBRARY_FTS + "(docid, " + COLUMN_TITLE + ", " + COLUMN_ARTIST + ", " + COLUMN_ALBUM + ") " +
+            "VALUES (new." + COLUMN_LIBRARY_ID + ", new." + COLUMN_TITLE + ", new." + COLUMN_ARTIST + ", new." + COLUMN_ALBUM + "); END"
+    };
+    
+    // Ranking pass: only the row ID and hit stats of each match; the rows themselves
+    // are read afterwards for the few that make the cut
+    private static final String SEARCH_LIBRARY = 
+        "SELECT " + TABLE_LIBRARY_FTS + ".docid, matchinfo(" + TABLE_LIBRARY_FTS + ", '" + LibrarySearch.MATCHINFO_FORMAT + "')" +
+        " FROM " + TABLE_LIBRARY_FTS + " JOIN " + TABLE_LIBRARY_TRACKS + " t" +
+        " ON t." + COLUMN_LIBRARY_ID + " = " + TABLE_LIBRARY_FTS + ".docid" +
+        " WHERE " + TABLE_LIBRARY_FTS + " MATCH ? AND t." + COLUMN_USER_ID_FK + " = ?";
+    
+    // Compiled once per batch and re-bound for every row
+    private static final String INSERT_LIBRARY_TRACK_OR_IGNORE = 
+        "INSERT OR IGNORE INTO " + TABLE_LIBRARY_TRACKS + " (" +
+        COLUMN_USER_ID_FK + ", " + COLUMN_TRACK_ID + ", " + COLUMN_TITLE + ", " +
+        COLUMN_ARTIST + ", " + COLUMN_ALBUM + ", " + COLUMN_ARTWORK_URL + ", " +
+        COLUMN_ARTWORK_SMALL_URL + ", " + COLUMN_ARTWORK_BIG_URL + ", " + COLUMN_ARTWORK_XL_URL + ", " +
+        COLUMN_PREVIEW_URL + ", " + COLUMN_DURATION +
+        ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String DELETE_LIBRARY_TRACK = 
+        "DELETE FROM " + TABLE_LIBRARY_TRACKS +
+        " WHERE " + COLUMN_USER_ID_FK + " = ? AND " + COLUMN_TRACK_ID + " = ?";
+    
+    private static DatabaseHelper instance;
+    
+    /**
+     * Get the process-wide helper. The underlying connection is opened once and
+     * kept open for the app's lifetime, so callers must not close it.
+     * @param context Any context; only its application context is retained
+     * @return The shared helper
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // WAL lets library reads run on pooled read connections while a write is in progress
+        setWriteAheadLoggingEnabled(true);
+    }
+    
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // Negative value is in KiB: about 4 MB, twice SQLite's default, sized so a library of a
+        // few thousand tracks stays cached across loads. Applies to the primary connection;
+        // DatabaseHelperBenchmark times a full load with each size
+        db.execSQL("PRAGMA cache_size = -" + PAGE_CACHE_SIZE_KB);
     }
     
     @Override
@@ -75,16 +163,34 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(CREATE_LIBRARY_TRACKS_TABLE);
         db.execSQL(CREATE_INDEX_LIBRARY_USER_ID);
         db.execSQL(CREATE_INDEX_LIBRARY_TRACK_ID);
+        db.execSQL(CREATE_INDEX_LIBRARY_USER_ADDED);
+        createLibraryFts(db);
     }
     
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Drop older tables if existed
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_LIBRARY_TRACKS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        
-        // Create tables again
-        onCreate(db);
+        // Migrate step by step so users keep their accounts and libraries
+        if (oldVersion < 2) {
+            db.execSQL(CREATE_INDEX_LIBRARY_USER_ADDED);
+        }
+        if (oldVersion < 3) {
+            createLibraryFts(db);
+            // Index the rows that already exist
+            db.execSQL("INSERT INTO " + TABLE_LIBRARY_FTS + "(" + TABLE_LIBRARY_FTS + ") VALUES ('rebuild')");
+        }
+        if (oldVersion < 4) {
+            // Existing rows keep only the medium cover until the track is saved again
+            db.execSQL("ALTER TABLE " + TABLE_LIBRARY_TRACKS + " ADD COLUMN " + COLUMN_ARTWORK_SMALL_URL + " TEXT");
+            db.execSQL("ALTER TABLE " + TABLE_LIBRARY_TRACKS + " ADD COLUMN " + COLUMN_ARTWORK_BIG_URL + " TEXT");
+            db.execSQL("ALTER TABLE " + TABLE_LIBRARY_TRACKS + " ADD COLUMN " + COLUMN_ARTWORK_XL_URL + " TEXT");
+        }
+    }
+    
+    private static void createLibraryFts(SQLiteDatabase db) {
+        db.execSQL(CREATE_LIBRARY_FTS_TABLE);
+        for (String trigger : CREATE_LIBRARY_FTS_TRIGGERS) {
+            db.execSQL(trigger);
+        }
     }
     
     // User database operations
@@ -109,8 +215,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             long id = db.insert(TABLE_USERS, null, values);
             android.util.Log.d("DatabaseHelper", "Insert returned ID: " + id);
             
-            db.close();
-            
             return id;
         } catch (Exception e) {
             android.util.Log.e("DatabaseHelper", "Error inserting user", e);
@@ -151,11 +255,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     e.printStackTrace();
                 }
             }
-            
+        }
+        
+        if (cursor != null) {
             cursor.close();
         }
         
-        db.close();
         return user;
     }
     
@@ -192,11 +297,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     e.printStackTrace();
                 }
             }
-            
+        }
+        
+        if (cursor != null) {
             cursor.close();
         }
         
-        db.close();
         return user;
     }
     
@@ -222,7 +328,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             new String[]{String.valueOf(user.getId())}
         );
         
-        db.close();
         return rowsAffected;
     }
     
@@ -262,11 +367,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_ARTIST, track.getArtist());
         values.put(COLUMN_ALBUM, track.getAlbum());
         values.put(COLUMN_ARTWORK_URL, track.getArtworkUrl());
+        values.put(COLUMN_ARTWORK_SMALL_URL, track.getArtworkSmallUrl());
+        values.put(COLUMN_ARTWORK_BIG_URL, track.getArtworkBigUrl());
+        values.put(COLUMN_ARTWORK_XL_URL, track.getArtworkXlUrl());
         values.put(COLUMN_PREVIEW_URL, track.getPreviewUrl());
         values.put(COLUMN_DURATION, track.getDuration());
         
         long id = db.insert(TABLE_LIBRARY_TRACKS, null, values);
-        db.close();
         
         return id;
     }
@@ -286,10 +393,125 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             new String[]{String.valueOf(userId), String.valueOf(trackId)}
         );
         
-        db.close();
         return rowsDeleted;
     }
     
+    /**
+     * Update the stored metadata of a track in user's library
+     * @param userId The user ID
+     * @param track The track with its new values
+     * @return The number of rows updated
+     */
+    public int updateLibraryTrack(long userId, com.example.mp3player.models.Track track) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        android.content.ContentValues values = new android.content.ContentValues();
+        
+        values.put(COLUMN_TITLE, track.getTitle());
+        values.put(COLUMN_ARTIST, track.getArtist());
+        values.put(COLUMN_ALBUM, track.getAlbum());
+        values.put(COLUMN_ARTWORK_URL, track.getArtworkUrl());
+        values.put(COLUMN_ARTWORK_SMALL_URL, track.getArtworkSmallUrl());
+        values.put(COLUMN_ARTWORK_BIG_URL, track.getArtworkBigUrl());
+        values.put(COLUMN_ARTWORK_XL_URL, track.getArtworkXlUrl());
+        values.put(COLUMN_PREVIEW_URL, track.getPreviewUrl());
+        values.put(COLUMN_DURATION, track.getDuration());
+        
+        return db.update(
+            TABLE_LIBRARY_TRACKS,
+            values,
+            COLUMN_USER_ID_FK + " = ? AND " + COLUMN_TRACK_ID + " = ?",
+            new String[]{String.valueOf(userId), String.valueOf(track.getId())}
+        );
+    }
+    
+    /**
+     * Check the fields library_tracks declares NOT NULL.
+     * INSERT OR IGNORE would silently skip a row missing one, as if it were a duplicate.
+     * @param track The track to check
+     * @return true if the track has a title and an artist
+     */
+    public static boolean hasRequiredLibraryFields(com.example.mp3player.models.Track track) {
+        return track.getTitle() != null && track.getArtist() != null;
+    }
+    
+    /**
+     * Insert many tracks into user's library in one transaction.
+     * Tracks already in the library are skipped by INSERT OR IGNORE, so callers
+     * need no separate existence check. Tracks without the required fields are
+     * skipped before the insert, so OR IGNORE only ever applies to duplicates.
+     * @param userId The user ID
+     * @param tracks The tracks to add
+     * @return IDs of the tracks that were actually inserted
+     */
+    public long[] insertLibraryTracks(long userId, java.util.List<com.example.mp3player.models.Track> tracks) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        long[] inserted = new long[tracks.size()];
+        int count = 0;
+        
+        db.beginTransaction();
+        try (SQLiteStatement statement = db.compileStatement(INSERT_LIBRARY_TRACK_OR_IGNORE)) {
+            for (com.example.mp3player.models.Track track : tracks) {
+                if (!hasRequiredLibraryFields(track)) {
+                    continue;
+                }
+                statement.bindLong(1, userId);
+                statement.bindLong(2, track.getId());
+                bindStringOrNull(statement, 3, track.getTitle());
+                bindStringOrNull(statement, 4, track.getArtist());
+                bindStringOrNull(statement, 5, track.getAlbum());
+                bindStringOrNull(statement, 6, track.getArtworkUrl());
+                bindStringOrNull(statement, 7, track.getArtworkSmallUrl());
+                bindStringOrNull(statement, 8, track.getArtworkBigUrl());
+                bindStringOrNull(statement, 9, track.getArtworkXlUrl());
+                bindStringOrNull(statement, 10, track.getPreviewUrl());
+                statement.bindLong(11, track.getDuration());
+                
+                // -1 when the row was ignored
+                if (statement.executeInsert() != -1) {
+                    inserted[count++] = track.getId();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        
+        return java.util.Arrays.copyOf(inserted, count);
+    }
+    
+    /**
+     * Delete many tracks from user's library in one transaction
+     * @param userId The user ID
+     * @param trackIds The track IDs to remove
+     * @return The number of rows deleted
+     */
+    public int deleteLibraryTracks(long userId, long[] trackIds) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int rowsDeleted = 0;
+        
+        db.beginTransaction();
+        try (SQLiteStatement statement = db.compileStatement(DELETE_LIBRARY_TRACK)) {
+            statement.bindLong(1, userId);
+            for (long trackId : trackIds) {
+                statement.bindLong(2, trackId);
+                rowsDeleted += statement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        
+        return rowsDeleted;
+    }
+    
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+    
     /**
      * Get all tracks in user's library
      * @param userId The user ID
@@ -305,31 +527,186 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             COLUMN_USER_ID_FK + " = ?",
             new String[]{String.valueOf(userId)},
             null, null,
-            COLUMN_ADDED_AT + " DESC"
+            LIBRARY_ORDER
         );
         
         if (cursor != null && cursor.moveToFirst()) {
             do {
-                com.example.mp3player.models.Track track = new com.example.mp3player.models.Track();
-                track.setId(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_TRACK_ID)));
-                track.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TITLE)));
-                track.setArtist(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ARTIST)));
-                track.setAlbum(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ALBUM)));
-                track.setArtworkUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ARTWORK_URL)));
-                track.setPreviewUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PREVIEW_URL)));
-                track.setDuration(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_DURATION)));
-                track.setInLibrary(true);
-                
-                tracks.add(track);
+                tracks.add(readLibraryTrack(cursor));
             } while (cursor.moveToNext());
-            
+        }
+        
+        if (cursor != null) {
             cursor.close();
         }
         
-        db.close();
         return tracks;
     }
     
+    /**
+     * Get one page of user's library, newest first.
+     * Uses keyset pagination: the page starts right after the given key, so
+     * the cost does not grow with how deep the page is.
+     * @param userId The user ID
+     * @param after Key returned with the previous page, or null for the first page
+     * @param limit Maximum number of tracks in the page
+     * @return The page and the key to continue after it
+     */
+    public LibraryPage getLibraryPage(long userId, LibraryPage.Key after, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        String selection = COLUMN_USER_ID_FK + " = ?";
+        String[] selectionArgs;
+        if (after == null) {
+            selectionArgs = new String[]{String.valueOf(userId)};
+        } else {
+            // Written out instead of a row-value comparison, which older SQLite versions lack
+            selection += " AND (" + COLUMN_ADDED_AT + " < ? OR (" +
+                    COLUMN_ADDED_AT + " = ? AND " + COLUMN_LIBRARY_ID + " < ?))";
+            selectionArgs = new String[]{String.valueOf(userId), after.addedAt, after.addedAt,
+                    String.valueOf(after.rowId)};
+        }
+        
+        // One extra row tells whether another page follows
+        android.database.Cursor cursor = db.query(
+            TABLE_LIBRARY_TRACKS,
+            null,
+            selection,
+            selectionArgs,
+            null, null,
+            LIBRARY_ORDER,
+            String.valueOf(limit + 1)
+        );
+        
+        try {
+            java.util.List<com.example.mp3player.models.Track> tracks = new java.util.ArrayList<>(Math.min(cursor.getCount(), limit));
+            LibraryPage.Key lastKey = null;
+            int addedAtIndex = cursor.getColumnIndexOrThrow(COLUMN_ADDED_AT);
+            int rowIdIndex = cursor.getColumnIndexOrThrow(COLUMN_LIBRARY_ID);
+            
+            while (tracks.size() < limit && cursor.moveToNext()) {
+                tracks.add(readLibraryTrack(cursor));
+                lastKey = new LibraryPage.Key(cursor.getString(addedAtIndex), cursor.getLong(rowIdIndex));
+            }
+            
+            boolean hasMore = cursor.getCount() > limit;
+            return new LibraryPage(tracks, hasMore ? lastKey : null);
+        } finally {
+            cursor.close();
+        }
+    }
+    
+    /**
+     * Full-text search of user's library by title, artist and album.
+     * Every word of the query matches as a prefix; results are ranked by relevance.
+     * @param userId The user ID
+     * @param query The text the user typed
+     * @param limit Maximum number of tracks to return
+     * @return Matching tracks, best match first
+     */
+    public java.util.List<com.example.mp3player.models.Track> searchLibrary(long userId, String query, int limit) {
+        String match = LibrarySearch.toMatchQuery(query);
+        if (match == null || limit <= 0) {
+            return new java.util.ArrayList<>();
+        }
+        
+        SQLiteDatabase db = this.getReadableDatabase();
+        android.database.Cursor cursor = db.rawQuery(SEARCH_LIBRARY, new String[]{match, String.valueOf(userId)});
+        
+        // Ties keep the order SQLite returned
+        LibrarySearch.TopRows top = new LibrarySearch.TopRows(limit);
+        try {
+            while (cursor.moveToNext()) {
+                top.offer(cursor.getLong(0), LibrarySearch.score(cursor.getBlob(1)));
+            }
+        } finally {
+            cursor.close();
+        }
+        
+        long[] rowIds = top.rowIdsBestFirst();
+        if (rowIds.length == 0) {
+            return new java.util.ArrayList<>();
+        }
+        
+        // Read just the winning rows, then put them back in rank order
+        StringBuilder placeholders = new StringBuilder();
+        String[] args = new String[rowIds.length];
+        for (int i = 0; i < rowIds.length; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+            args[i] = String.valueOf(rowIds[i]);
+        }
+        cursor = db.query(TABLE_LIBRARY_TRACKS, null,
+                COLUMN_LIBRARY_ID + " IN (" + placeholders + ")", args, null, null, null);
+        
+        com.example.mp3player.models.Track[] ranked = new com.example.mp3player.models.Track[rowIds.length];
+        try {
+            int rowIdIndex = cursor.getColumnIndexOrThrow(COLUMN_LIBRARY_ID);
+            while (cursor.moveToNext()) {
+                long rowId = cursor.getLong(rowIdIndex);
+                for (int i = 0; i < rowIds.length; i++) {
+                    if (rowIds[i] == rowId) {
+                        ranked[i] = readLibraryTrack(cursor);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        
+        java.util.List<com.example.mp3player.models.Track> results = new java.util.ArrayList<>(ranked.length);
+        for (com.example.mp3player.models.Track track : ranked) {
+            if (track != null) { // Deleted between the two queries
+                results.add(track);
+            }
+        }
+        return results;
+    }
+    
+    private static com.example.mp3player.models.Track readLibraryTrack(android.database.Cursor cursor) {
+        com.example.mp3player.models.Track track = new com.example.mp3player.models.Track();
+        track.setId(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_TRACK_ID)));
+        track.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TITLE)));
+        track.setArtist(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ARTIST)));
+        track.setAlbum(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ALBUM)));
+        track.setArtworkUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ARTWORK_URL)));
+        track.setArtworkSmallUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ARTWORK_SMALL_URL)));
+        track.setArtworkBigUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ARTWORK_BIG_URL)));
+        track.setArtworkXlUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ARTWORK_XL_URL)));
+        track.setPreviewUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PREVIEW_URL)));
+        track.setDuration(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_DURATION)));
+        track.setInLibrary(true);
+        return track;
+    }
+    
+    /**
+     * Get the IDs of all tracks in user's library
+     * @param userId The user ID
+     * @return Track IDs, in no particular order
+     */
+    public long[] getLibraryTrackIds(long userId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        android.database.Cursor cursor = db.query(
+            TABLE_LIBRARY_TRACKS,
+            new String[]{COLUMN_TRACK_ID},
+            COLUMN_USER_ID_FK + " = ?",
+            new String[]{String.valueOf(userId)},
+            null, null, null
+        );
+        
+        try {
+            long[] ids = new long[cursor.getCount()];
+            int i = 0;
+            while (cursor.moveToNext()) {
+                ids[i++] = cursor.getLong(0);
+            }
+            return ids;
+        } finally {
+            cursor.close();
+        }
+    }
+    
     /**
      * Check if a track is in user's library
      * @param userId The user ID
@@ -353,7 +730,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             cursor.close();
         }
         
-        db.close();
         return exists;
     }
 }
@@ -0,0 +1,49 @@
+package com.example.mp3player.database;
+
+import com.example.mp3player.models.Track;
+
+import java.util.List;
+
+/**
+ * One page of a user's library, newest first, with the key to continue after it.
+ */
+public final class LibraryPage {
+
+    /**
+     * Position in the library ordering (added_at DESC, id DESC).
+     * The next page starts strictly after this row, so pages stay consistent
+     * while rows are added or removed and no OFFSET has to be skipped over.
+     */
+    public static final class Key {
+        final String addedAt;
+        final long rowId;
+
+        Key(String addedAt, long rowId) {
+            this.addedAt = addedAt;
+            this.rowId = rowId;
+        }
+    }
+
+    private final List<Track> tracks;
+    private final Key nextKey;
+
+    LibraryPage(List<Track> tracks, Key nextKey) {
+        this.tracks = tracks;
+        this.nextKey = nextKey;
+    }
+
+    public List<Track> getTracks() {
+        return tracks;
+    }
+
+    /**
+     * @return Key of the last row, or null if this is the last page
+     */
+    public Key getNextKey() {
+        return nextKey;
+    }
+
+    public boolean hasNext() {
+        return nextKey != null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.mp3player.database;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+/**
+ * Query building and ranking for the library full-text index.
+ * The index is FTS4, which has no built-in ranking function, so results are
+ * scored from matchinfo(): a tf-idf style sum weighted by column, where a hit
+ * in the title counts more than one in the artist or album.
+ */
+final class LibrarySearch {
+    /**
+     * matchinfo() format: phrase count, column count, row count, then per phrase/column hit stats
+     */
+    static final String MATCHINFO_FORMAT = "pcnx";
+
+    // Same order as the columns of the FTS table: title, artist, album
+    private static final double[] COLUMN_WEIGHTS = {3.0, 2.0, 1.0};
+
+    private LibrarySearch() {
+    }
+
+    /**
+     * Turn free text into an FTS MATCH expression: every word must match as a prefix,
+     * so "beat it" finds "Beat It" while the user is still typing "beat i".
+     * Punctuation is dropped, which also keeps FTS operators and quotes out of the query.
+     * @param query The text the user typed
+     * @return The MATCH expression, or null if the text has no searchable words
+     */
+    static String toMatchQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+
+        StringBuilder match = new StringBuilder();
+        // Lower case so words like "or" and "not" are never read as operators
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    /**
+     * Score one row from its matchinfo blob
+     * @param matchinfo The value of matchinfo(table, 'pcnx') for the row
+     * @return Relevance, higher is better
+     */
+    static double score(byte[] matchinfo) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt();
+        int columns = buffer.getInt();
+        int rows = buffer.getInt();
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int hitsInRow = buffer.getInt();
+                buffer.getInt(); // Hits in all rows, not needed
+                int rowsWithHits = buffer.getInt();
+
+                if (hitsInRow == 0) {
+                    continue;
+                }
+                double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                // Saturate repeated words and favour words that few tracks contain
+                double tf = hitsInRow / (hitsInRow + 1.0);
+                double idf = Math.log(1.0 + (double) rows / Math.max(1, rowsWithHits));
+                score += weight * tf * idf;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * The best N of a stream of scored rows, kept in a min-heap of at most N entries,
+     * so ranking a broad match costs O(rows log N) and no per-row objects.
+     * Ties keep the order the rows were offered in.
+     */
+    static final class TopRows {
+        private final long[] rowIds;
+        private final double[] scores;
+        private final int[] sequences;
+        private int size;
+        private int offered;
+
+        /**
+         * @param limit Number of rows to keep
+         */
+        TopRows(int limit) {
+            rowIds = new long[limit];
+            scores = new double[limit];
+            sequences = new int[limit];
+        }
+
+        void offer(long rowId, double score) {
+            int sequence = offered++;
+            if (size < rowIds.length) {
+                set(size, rowId, score, sequence);
+                siftUp(size++);
+            } else if (size > 0 && score > scores[0]) {
+                // Better than the worst kept row; an equal score loses to the earlier row
+                set(0, rowId, score, sequence);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * @return The kept row IDs, best first
+         */
+        long[] rowIdsBestFirst() {
+            long[] result = new long[size];
+            // Popping the min-heap yields the worst row first
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = rowIds[0];
+                size--;
+                set(0, rowIds[size], scores[size], sequences[size]);
+                siftDown(0);
+            }
+            return result;
+        }
+
+        /**
+         * Heap order: the lower score, or on a tie the later row, is worse
+         */
+        private boolean worse(int a, int b) {
+            if (scores[a] != scores[b]) {
+                return scores[a] < scores[b];
+            }
+            return sequences[a] > sequences[b];
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!worse(index, parent)) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && worse(left, worst)) {
+                    worst = left;
+                }
+                if (right < size && worse(right, worst)) {
+                    worst = right;
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void set(int index, long rowId, double score, int sequence) {
+            rowIds[index] = rowId;
+            scores[index] = score;
+            sequences[index] = sequence;
+        }
+
+        private void swap(int a, int b) {
+            long rowId = rowIds[a];
+            double score = scores[a];
+            int sequence = sequences[a];
+            set(a, rowIds[b], scores[b], sequences[b]);
+            set(b, rowId, score, sequence);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.mp3player.models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One change to a user's library, published after it has been written to the database.
+ * Observers apply it to the lists they hold instead of re-reading the library.
+ */
+public class LibraryChange {
+    public enum Type {
+        INSERTED,
+        DELETED,
+        UPDATED
+    }
+
+    private final Type type;
+    private final long userId;
+    private final long[] trackIds;
+    private final List<Track> tracks;
+
+    private LibraryChange(Type type, long userId, long[] trackIds, List<Track> tracks) {
+        this.type = type;
+        this.userId = userId;
+        this.trackIds = trackIds;
+        this.tracks = tracks;
+    }
+
+    /**
+     * @param tracks The tracks that were added, newest first
+     */
+    public static LibraryChange inserted(long userId, List<Track> tracks) {
+        return new LibraryChange(Type.INSERTED, userId, idsOf(tracks), Collections.unmodifiableList(tracks));
+    }
+
+    public static LibraryChange deleted(long userId, long[] trackIds) {
+        return new LibraryChange(Type.DELETED, userId, trackIds, Collections.<Track>emptyList());
+    }
+
+    /**
+     * @param tracks The tracks with their new values
+     */
+    public static LibraryChange updated(long userId, List<Track> tracks) {
+        return new LibraryChange(Type.UPDATED, userId, idsOf(tracks), Collections.unmodifiableList(tracks));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return IDs of all tracks the change affects
+     */
+    public long[] getTrackIds() {
+        return trackIds;
+    }
+
+    /**
+     * @return The inserted or updated tracks; empty for deletions
+     */
+    public List<Track> getTracks() {
+        return tracks;
+    }
+
+    private static long[] idsOf(List<Track> tracks) {
+        long[] ids = new long[tracks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tracks.get(i).getId();
+        }
+        return ids;
+    }
+}
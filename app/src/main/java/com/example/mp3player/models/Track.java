@@ -4,11 +4,20 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 public class Track implements Parcelable {
+    // Edge in pixels of each cover size Deezer serves
+    public static final int COVER_SMALL_SIZE = 56;
+    public static final int COVER_MEDIUM_SIZE = 250;
+    public static final int COVER_BIG_SIZE = 500;
+    public static final int COVER_XL_SIZE = 1000;
+
     private long id;
     private String title;
     private String artist;
     private String album;
+    private String artworkSmallUrl;
     private String artworkUrl;
+    private String artworkBigUrl;
+    private String artworkXlUrl;
     private String previewUrl;
     private int duration;
     private boolean isInLibrary;
@@ -28,12 +37,33 @@ public class Track implements Parcelable {
         this.isInLibrary = isInLibrary;
     }
 
+    /**
+     * Copy every field of another track, so the copy can be changed on its own
+     * @param other The track to copy
+     */
+    public Track(Track other) {
+        id = other.id;
+        title = other.title;
+        artist = other.artist;
+        album = other.album;
+        artworkSmallUrl = other.artworkSmallUrl;
+        artworkUrl = other.artworkUrl;
+        artworkBigUrl = other.artworkBigUrl;
+        artworkXlUrl = other.artworkXlUrl;
+        previewUrl = other.previewUrl;
+        duration = other.duration;
+        isInLibrary = other.isInLibrary;
+    }
+
     protected Track(Parcel in) {
         id = in.readLong();
         title = in.readString();
         artist = in.readString();
         album = in.readString();
+        artworkSmallUrl = in.readString();
         artworkUrl = in.readString();
+        artworkBigUrl = in.readString();
+        artworkXlUrl = in.readString();
         previewUrl = in.readString();
         duration = in.readInt();
         isInLibrary = in.readByte() != 0;
@@ -62,7 +92,10 @@ public class Track implements Parcelable {
         dest.writeString(title);
         dest.writeString(artist);
         dest.writeString(album);
+        dest.writeString(artworkSmallUrl);
         dest.writeString(artworkUrl);
+        dest.writeString(artworkBigUrl);
+        dest.writeString(artworkXlUrl);
         dest.writeString(previewUrl);
         dest.writeInt(duration);
         dest.writeByte((byte) (isInLibrary ? 1 : 0));
@@ -101,6 +134,9 @@ public class Track implements Parcelable {
         this.album = album;
     }
 
+    /**
+     * @return The medium (250x250) cover
+     */
     public String getArtworkUrl() {
         return artworkUrl;
     }
@@ -109,6 +145,62 @@ public class Track implements Parcelable {
         this.artworkUrl = artworkUrl;
     }
 
+    /**
+     * @return The small (56x56) cover
+     */
+    public String getArtworkSmallUrl() {
+        return artworkSmallUrl;
+    }
+
+    public void setArtworkSmallUrl(String artworkSmallUrl) {
+        this.artworkSmallUrl = artworkSmallUrl;
+    }
+
+    /**
+     * @return The big (500x500) cover
+     */
+    public String getArtworkBigUrl() {
+        return artworkBigUrl;
+    }
+
+    public void setArtworkBigUrl(String artworkBigUrl) {
+        this.artworkBigUrl = artworkBigUrl;
+    }
+
+    /**
+     * @return The extra large (1000x1000) cover
+     */
+    public String getArtworkXlUrl() {
+        return artworkXlUrl;
+    }
+
+    public void setArtworkXlUrl(String artworkXlUrl) {
+        this.artworkXlUrl = artworkXlUrl;
+    }
+
+    /**
+     * Pick the smallest cover that fills a view without being scaled up.
+     * If no known cover is that big, the largest known one is returned.
+     * @param sizePx The larger edge of the view in pixels
+     * @return The cover URL, or null if the track has no artwork
+     */
+    public String getArtworkUrl(int sizePx) {
+        String[] urls = {artworkSmallUrl, artworkUrl, artworkBigUrl, artworkXlUrl};
+        int[] sizes = {COVER_SMALL_SIZE, COVER_MEDIUM_SIZE, COVER_BIG_SIZE, COVER_XL_SIZE};
+
+        String largest = null;
+        for (int i = 0; i < urls.length; i++) {
+            if (urls[i] == null || urls[i].isEmpty()) {
+                continue;
+            }
+            if (sizes[i] >= sizePx) {
+                return urls[i];
+            }
+            largest = urls[i];
+        }
+        return largest;
+    }
+
     public String getPreviewUrl() {
         return previewUrl;
     }
@@ -0,0 +1,37 @@
+package com.example.mp3player.models;
+
+import java.util.List;
+
+public class TrackPage {
+    private final List<Track> tracks;
+    private final int total;
+    private final int nextIndex;
+
+    public TrackPage(List<Track> tracks, int total, int nextIndex) {
+        this.tracks = tracks;
+        this.total = total;
+        this.nextIndex = nextIndex;
+    }
+
+    public List<Track> getTracks() {
+        return tracks;
+    }
+
+    /**
+     * @return Total number of results reported by the API, or -1 if unknown
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return Index of the first item of the next page, or -1 if this is the last page
+     */
+    public int getNextIndex() {
+        return nextIndex;
+    }
+
+    public boolean hasNext() {
+        return nextIndex >= 0;
+    }
+}
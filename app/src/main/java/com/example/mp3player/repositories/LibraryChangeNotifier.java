@@ -0,0 +1,43 @@
+package com.example.mp3player.repositories;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.mp3player.models.LibraryChange;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide stream of library changes.
+ * Writes happen on the serial DB write executor; listeners are called on the main thread,
+ * in the order the changes were published.
+ */
+final class LibraryChangeNotifier {
+    private static final LibraryChangeNotifier instance = new LibraryChangeNotifier();
+
+    private final CopyOnWriteArrayList<MusicRepository.LibraryChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private LibraryChangeNotifier() {
+    }
+
+    static LibraryChangeNotifier getInstance() {
+        return instance;
+    }
+
+    void addListener(MusicRepository.LibraryChangeListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    void removeListener(MusicRepository.LibraryChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    void publish(LibraryChange change) {
+        mainHandler.post(() -> {
+            for (MusicRepository.LibraryChangeListener listener : listeners) {
+                listener.onLibraryChanged(change);
+            }
+        });
+    }
+}
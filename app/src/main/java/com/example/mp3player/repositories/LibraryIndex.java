@@ -0,0 +1,100 @@
+package com.example.mp3player.repositories;
+
+import com.example.mp3player.database.DatabaseHelper;
+import com.example.mp3player.models.Track;
+import com.example.mp3player.utils.LongHashSet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide, in-memory index of which track IDs are in each user's library.
+ * A user's set is read from the database the first time it is needed and then
+ * kept in step by MusicRepository's add and remove, so membership checks for
+ * every search and chart row are hash lookups rather than queries.
+ */
+final class LibraryIndex {
+    private static final LibraryIndex instance = new LibraryIndex();
+
+    private final Map<Long, LongHashSet> libraries = new HashMap<>();
+
+    // User whose library marks API results; -1 when logged out
+    private volatile long activeUserId = -1;
+
+    private LibraryIndex() {
+    }
+
+    static LibraryIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Set the user whose library is used to mark API results
+     * @param userId The logged in user's ID, or -1 when logged out
+     */
+    void setActiveUser(long userId) {
+        activeUserId = userId;
+    }
+
+    /**
+     * Check membership, loading the user's library on first use.
+     * May query the database, so call it off the main thread.
+     */
+    synchronized boolean contains(DatabaseHelper databaseHelper, long userId, long trackId) {
+        return libraryOf(databaseHelper, userId).contains(trackId);
+    }
+
+    /**
+     * Record a track added to the library. Ignored if the user's set is not loaded yet,
+     * since loading it later reads the new row anyway.
+     */
+    synchronized void add(long userId, long trackId) {
+        LongHashSet library = libraries.get(userId);
+        if (library != null) {
+            library.add(trackId);
+        }
+    }
+
+    synchronized void remove(long userId, long trackId) {
+        LongHashSet library = libraries.get(userId);
+        if (library != null) {
+            library.remove(trackId);
+        }
+    }
+
+    /**
+     * Set the in-library flag of tracks from the active user's library.
+     * May query the database, so call it off the main thread.
+     * @param tracks Tracks from an API response
+     */
+    void markTracks(DatabaseHelper databaseHelper, List<Track> tracks) {
+        long userId = activeUserId;
+        if (userId == -1) {
+            for (Track track : tracks) {
+                track.setInLibrary(false);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            LongHashSet library = libraryOf(databaseHelper, userId);
+            for (Track track : tracks) {
+                track.setInLibrary(library.contains(track.getId()));
+            }
+        }
+    }
+
+    private LongHashSet libraryOf(DatabaseHelper databaseHelper, long userId) {
+        LongHashSet library = libraries.get(userId);
+        if (library == null) {
+            long[] ids = databaseHelper.getLibraryTrackIds(userId);
+            library = new LongHashSet(ids.length);
+            for (long id : ids) {
+                library.add(id);
+            }
+            libraries.put(userId, library);
+        }
+        return library;
+    }
+}
@@ -1,54 +1,172 @@
 package com.example.mp3player.repositories;
 
 import android.content.Context;
+import android.database.SQLException;
 
 import com.example.mp3player.api.DeezerApiClient;
+import com.example.mp3player.api.RequestHandle;
+import com.example.mp3player.database.DatabaseExecutor;
 import com.example.mp3player.database.DatabaseHelper;
+import com.example.mp3player.database.LibraryPage;
+import com.example.mp3player.models.LibraryChange;
 import com.example.mp3player.models.Track;
+import com.example.mp3player.models.TrackPage;
+import com.example.mp3player.utils.LongHashSet;
+import com.example.mp3player.utils.TrackPager;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MusicRepository {
     private final DeezerApiClient apiClient;
     private final DatabaseHelper databaseHelper;
+    private final LibraryIndex libraryIndex = LibraryIndex.getInstance();
+    private final LibraryChangeNotifier changeNotifier = LibraryChangeNotifier.getInstance();
+    
+    public interface LibraryChangeListener {
+        /**
+         * Called on the main thread after a library change has been committed
+         */
+        void onLibraryChanged(LibraryChange change);
+    }
     
     public MusicRepository(Context context) {
-        this.apiClient = new DeezerApiClient();
-        this.databaseHelper = new DatabaseHelper(context);
+        this.apiClient = new DeezerApiClient(context);
+        this.databaseHelper = DatabaseHelper.getInstance(context);
     }
     
     /**
-     * Search for tracks
+     * Get a page loader over search results, for use with {@link TrackPager}
      * @param query The search query
-     * @param callback Callback for handling results
+     * @return Loader whose cursor is the Deezer result index
      */
-    public void searchTracks(String query, DeezerApiClient.SearchCallback callback) {
-        apiClient.searchTracks(query, callback);
+    public TrackPager.PageLoader searchPageLoader(String query) {
+        return (cursor, pageSize, callback) ->
+                apiClient.searchTracksPage(query, indexOf(cursor), pageSize, toPageCallback(callback));
     }
     
     /**
-     * Get track by ID
-     * @param trackId The track ID
-     * @param callback Callback for handling result
+     * Get a page loader over the chart, for use with {@link TrackPager}
+     * @return Loader whose cursor is the Deezer result index
      */
-    public void getTrackById(long trackId, DeezerApiClient.TrackCallback callback) {
-        apiClient.getTrack(trackId, callback);
+    public TrackPager.PageLoader chartPageLoader() {
+        return (cursor, pageSize, callback) ->
+                apiClient.getChartPage(indexOf(cursor), pageSize, toPageCallback(callback));
+    }
+    
+    /**
+     * Get a page loader over user's library, for use with {@link TrackPager}.
+     * Pages are read on the DB executor.
+     * @param userId The user ID
+     * @return Loader whose cursor is a {@link LibraryPage.Key}
+     */
+    public TrackPager.PageLoader libraryPageLoader(long userId) {
+        return (cursor, pageSize, callback) -> {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            DatabaseExecutor.execute(() -> {
+                if (cancelled.get()) {
+                    return; // Scrolled away before the query started
+                }
+                try {
+                    LibraryPage page = databaseHelper.getLibraryPage(userId, (LibraryPage.Key) cursor, pageSize);
+                    callback.onPageLoaded(page.getTracks(), page.getNextKey());
+                } catch (RuntimeException e) {
+                    callback.onError(e);
+                }
+            });
+            return () -> cancelled.set(true);
+        };
     }
     
     /**
-     * Get recommended tracks (chart)
-     * @param callback Callback for handling results
+     * The first page of a pager is seeded without a cursor; it starts at index 0
      */
-    public void getRecommendations(DeezerApiClient.ChartCallback callback) {
-        apiClient.getChart(callback);
+    private static int indexOf(Object cursor) {
+        return cursor != null ? (Integer) cursor : 0;
+    }
+    
+    /**
+     * Get the first page of search results together with its next cursor
+     * @param query The search query
+     * @param callback Callback for handling the page
+     * @return Handle for cancelling the request
+     */
+    public RequestHandle searchTracksFirstPage(String query, DeezerApiClient.PageCallback callback) {
+        return apiClient.searchTracksPage(query, 0, DeezerApiClient.SEARCH_PAGE_SIZE, withLibraryStatus(callback));
+    }
+    
+    /**
+     * Get the first page of the chart together with its next cursor
+     * @param callback Callback for handling the page
+     * @return Handle for cancelling the request
+     */
+    public RequestHandle getChartFirstPage(DeezerApiClient.PageCallback callback) {
+        return apiClient.getChartPage(0, DeezerApiClient.CHART_PAGE_SIZE, withLibraryStatus(callback));
+    }
+    
+    private DeezerApiClient.PageCallback toPageCallback(TrackPager.PageCallback callback) {
+        return new DeezerApiClient.PageCallback() {
+            @Override
+            public void onSuccess(TrackPage page) {
+                libraryIndex.markTracks(databaseHelper, page.getTracks());
+                callback.onPageLoaded(page.getTracks(), page.hasNext() ? page.getNextIndex() : null);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        };
+    }
+    
+    /**
+     * Wrap a page callback so tracks carry their in-library flag before the caller sees them.
+     * Runs on the network callback thread, where loading the library index is allowed.
+     */
+    private DeezerApiClient.PageCallback withLibraryStatus(DeezerApiClient.PageCallback callback) {
+        return new DeezerApiClient.PageCallback() {
+            @Override
+            public void onSuccess(TrackPage page) {
+                libraryIndex.markTracks(databaseHelper, page.getTracks());
+                callback.onSuccess(page);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        };
+    }
+    
+    /**
+     * Get track by ID
+     * @param trackId The track ID
+     * @param callback Callback for handling result
+     */
+    public void getTrackById(long trackId, DeezerApiClient.TrackCallback callback) {
+        apiClient.getTrack(trackId, new DeezerApiClient.TrackCallback() {
+            @Override
+            public void onSuccess(Track track) {
+                libraryIndex.markTracks(databaseHelper, Collections.singletonList(track));
+                callback.onSuccess(track);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
     }
     
     /**
      * Get new releases (using chart as well)
-     * @param callback Callback for handling results
+     * @param callback Callback for handling the first chart page
+     * @return Handle for cancelling the request
      */
-    public void getNewReleases(DeezerApiClient.ChartCallback callback) {
-        apiClient.getChart(callback);
+    public RequestHandle getNewReleases(DeezerApiClient.PageCallback callback) {
+        return getChartFirstPage(callback);
     }
     
     /**
@@ -58,13 +176,25 @@ public class MusicRepository {
      * @return 1 if added successfully, 0 if already in library, -1 if error
      */
     public int addToLibrary(long userId, Track track) {
-        // Check if already in library
-        if (databaseHelper.isTrackInLibrary(userId, track.getId())) {
+        if (!DatabaseHelper.hasRequiredLibraryFields(track)) {
+            return -1; // Error: the row would break NOT NULL
+        }
+        
+        long[] inserted;
+        try {
+            // INSERT OR IGNORE: the database, not a cached index, decides whether the row is new
+            inserted = databaseHelper.insertLibraryTracks(userId, Collections.singletonList(track));
+        } catch (SQLException e) {
+            return -1; // Error
+        }
+        
+        if (inserted.length == 0) {
             return 0; // Already in library
         }
         
-        long result = databaseHelper.insertLibraryTrack(userId, track);
-        return result != -1 ? 1 : -1; // 1 = success, -1 = error
+        libraryIndex.add(userId, track.getId());
+        changeNotifier.publish(LibraryChange.inserted(userId, Collections.singletonList(libraryCopyOf(track))));
+        return 1; // Success
     }
     
     /**
@@ -75,7 +205,96 @@ public class MusicRepository {
      */
     public boolean removeFromLibrary(long userId, long trackId) {
         int rowsDeleted = databaseHelper.deleteLibraryTrack(userId, trackId);
-        return rowsDeleted > 0;
+        if (rowsDeleted > 0) {
+            libraryIndex.remove(userId, trackId);
+            changeNotifier.publish(LibraryChange.deleted(userId, new long[]{trackId}));
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Add many tracks to user's library in one transaction
+     * @param userId The user ID
+     * @param tracks The tracks to add
+     * @return Number of tracks added; tracks already in the library are skipped
+     */
+    public int addAllToLibrary(long userId, List<Track> tracks) {
+        long[] inserted = databaseHelper.insertLibraryTracks(userId, tracks);
+        LongHashSet insertedIds = new LongHashSet(inserted.length);
+        for (long trackId : inserted) {
+            libraryIndex.add(userId, trackId);
+            insertedIds.add(trackId);
+        }
+        
+        // Rows inserted later sort first in the newest-first library
+        List<Track> newestFirst = new ArrayList<>(inserted.length);
+        for (int i = tracks.size() - 1; i >= 0; i--) {
+            Track track = tracks.get(i);
+            if (insertedIds.remove(track.getId())) {
+                newestFirst.add(libraryCopyOf(track));
+            }
+        }
+        
+        if (!newestFirst.isEmpty()) {
+            changeNotifier.publish(LibraryChange.inserted(userId, newestFirst));
+        }
+        return inserted.length;
+    }
+    
+    /**
+     * Remove many tracks from user's library in one transaction
+     * @param userId The user ID
+     * @param trackIds The track IDs to remove
+     * @return Number of tracks removed
+     */
+    public int removeAllFromLibrary(long userId, long[] trackIds) {
+        int rowsDeleted = databaseHelper.deleteLibraryTracks(userId, trackIds);
+        for (long trackId : trackIds) {
+            libraryIndex.remove(userId, trackId);
+        }
+        if (rowsDeleted > 0) {
+            changeNotifier.publish(LibraryChange.deleted(userId, trackIds));
+        }
+        return rowsDeleted;
+    }
+    
+    /**
+     * Store new metadata for a track already in user's library
+     * @param userId The user ID
+     * @param track The track with its new values
+     * @return true if the track was in the library and was updated
+     */
+    public boolean updateLibraryTrack(long userId, Track track) {
+        int rowsUpdated = databaseHelper.updateLibraryTrack(userId, track);
+        if (rowsUpdated > 0) {
+            changeNotifier.publish(LibraryChange.updated(userId, Collections.singletonList(libraryCopyOf(track))));
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Copy a written track for a change event. The caller's instance may be a row another
+     * screen is binding on the main thread, so it is neither changed here nor shared with
+     * the library list; listeners update the flags of their own rows.
+     */
+    private static Track libraryCopyOf(Track track) {
+        Track copy = new Track(track);
+        copy.setInLibrary(true);
+        return copy;
+    }
+    
+    /**
+     * Listen for library inserts, deletes and updates made through any repository instance
+     * @param listener Called on the main thread; remove it when the observer goes away
+     */
+    public void addLibraryChangeListener(LibraryChangeListener listener) {
+        changeNotifier.addListener(listener);
+    }
+    
+    public void removeLibraryChangeListener(LibraryChangeListener listener) {
+        changeNotifier.removeListener(listener);
     }
     
     /**
@@ -88,12 +307,45 @@ public class MusicRepository {
     }
     
     /**
-     * Check if a track is in user's library
+     * Set the in-library flag of tracks that did not come fresh from the API, e.g. cached results.
+     * May query the database, so call it off the main thread.
+     * @param tracks The tracks to mark
+     */
+    public void markLibraryStatus(List<Track> tracks) {
+        libraryIndex.markTracks(databaseHelper, tracks);
+    }
+    
+    /**
+     * Search user's library offline through the local full-text index.
+     * Queries the database, so call it off the main thread.
+     * @param userId The user ID
+     * @param query The text the user typed
+     * @param limit Maximum number of tracks to return
+     * @return Matching library tracks, best match first
+     */
+    public List<Track> searchLibrary(long userId, String query, int limit) {
+        return databaseHelper.searchLibrary(userId, query, limit);
+    }
+    
+    /**
+     * Get one page of user's library, newest first
+     * @param userId The user ID
+     * @param after Key returned with the previous page, or null for the first page
+     * @param limit Maximum number of tracks in the page
+     * @return The page and the key to continue after it
+     */
+    public LibraryPage getLibraryPage(long userId, LibraryPage.Key after, int limit) {
+        return databaseHelper.getLibraryPage(userId, after, limit);
+    }
+    
+    /**
+     * Check if a track is in user's library.
+     * Answered from memory; only the first check for a user reads the database.
      * @param userId The user ID
      * @param trackId The track ID
      * @return true if track is in library, false otherwise
      */
     public boolean isInLibrary(long userId, long trackId) {
-        return databaseHelper.isTrackInLibrary(userId, trackId);
+        return libraryIndex.contains(databaseHelper, userId, trackId);
     }
 }
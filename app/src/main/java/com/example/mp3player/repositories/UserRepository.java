@@ -3,6 +3,7 @@ package com.example.mp3player.repositories;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.example.mp3player.database.DatabaseExecutor;
 import com.example.mp3player.database.DatabaseHelper;
 import com.example.mp3player.models.User;
 import com.example.mp3player.utils.PasswordUtils;
@@ -15,10 +16,10 @@ public class UserRepository {
     
     private final DatabaseHelper databaseHelper;
     private final SharedPreferences sharedPreferences;
-    private User currentUser;
+    private volatile User currentUser;
     
     public UserRepository(Context context) {
-        this.databaseHelper = new DatabaseHelper(context);
+        this.databaseHelper = DatabaseHelper.getInstance(context);
         this.sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         loadCurrentUser();
     }
@@ -125,8 +126,9 @@ public class UserRepository {
     /**
      * Logout the current user
      */
-    public void logout() {
+    public synchronized void logout() {
         currentUser = null;
+        LibraryIndex.getInstance().setActiveUser(-1);
         sharedPreferences.edit()
                 .remove(KEY_USER_ID)
                 .remove(KEY_USERNAME)
@@ -169,8 +171,9 @@ public class UserRepository {
     /**
      * Save current user to SharedPreferences
      */
-    private void saveCurrentUser(User user) {
+    private synchronized void saveCurrentUser(User user) {
         currentUser = user;
+        LibraryIndex.getInstance().setActiveUser(user.getId());
         sharedPreferences.edit()
                 .putLong(KEY_USER_ID, user.getId())
                 .putString(KEY_USERNAME, user.getUsername())
@@ -178,14 +181,33 @@ public class UserRepository {
     }
     
     /**
-     * Load current user from SharedPreferences
+     * Load current user from SharedPreferences.
+     * The saved id and username are enough for callers to act on right away;
+     * the full record is read from the database on the DB executor.
      */
     private void loadCurrentUser() {
         long userId = sharedPreferences.getLong(KEY_USER_ID, -1);
         String username = sharedPreferences.getString(KEY_USERNAME, null);
         
         if (userId != -1 && username != null) {
-            currentUser = databaseHelper.getUserByUsername(username);
+            User saved = new User();
+            saved.setId(userId);
+            saved.setUsername(username);
+            currentUser = saved;
+            LibraryIndex.getInstance().setActiveUser(userId);
+            
+            DatabaseExecutor.execute(() -> {
+                User stored = databaseHelper.getUserByUsername(username);
+                // Skip if the user logged out or switched accounts meanwhile
+                synchronized (this) {
+                    if (currentUser == saved) {
+                        currentUser = stored;
+                        if (stored == null) {
+                            LibraryIndex.getInstance().setActiveUser(-1);
+                        }
+                    }
+                }
+            });
         }
     }
 }
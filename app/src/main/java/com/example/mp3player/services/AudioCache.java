@@ -0,0 +1,246 @@
+package com.example.mp3player.services;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU of downloaded preview audio on disk, keyed by Deezer track ID.
+ * Preview URLs carry an expiring signature, so the track ID is the only stable key.
+ * Each complete download is one file; downloads in progress are written to a
+ * separate part file and only enter the cache once they have all their bytes.
+ * Recency is kept in memory; after a restart entries are ordered by when they were written.
+ */
+public class AudioCache {
+    private static final String DIR_NAME = "audio_cache";
+    private static final String AUDIO_SUFFIX = ".audio";
+    private static final String PART_SUFFIX = ".part";
+
+    /**
+     * Default size cap; a 30 second preview is roughly half a megabyte
+     */
+    public static final long DEFAULT_MAX_SIZE_BYTES = 64L * 1024 * 1024;
+
+    private static volatile AudioCache instance;
+
+    private final File directory;
+    // Track ID to file size, in access order
+    private final LinkedHashMap<Long, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+    private long maxSizeBytes;
+    private boolean loaded;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Get the process-wide cache in the app's cache directory
+     * @param context Any context; only its cache directory is used
+     * @return The shared cache
+     */
+    public static AudioCache getInstance(Context context) {
+        AudioCache result = instance;
+        if (result == null) {
+            synchronized (AudioCache.class) {
+                result = instance;
+                if (result == null) {
+                    result = new AudioCache(new File(context.getCacheDir(), DIR_NAME), DEFAULT_MAX_SIZE_BYTES);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    AudioCache(File directory, long maxSizeBytes) {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Read the directory into the index, dropping downloads that never finished.
+     * Every other method loads on first use; call this from a background thread
+     * to keep that scan off the thread that starts playback.
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<File> audioFiles = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(AUDIO_SUFFIX) && trackIdOf(file) != -1) {
+                audioFiles.add(file);
+            } else {
+                file.delete();
+            }
+        }
+        // Oldest first, so they end up least recently used
+        Collections.sort(audioFiles, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : audioFiles) {
+            long length = file.length();
+            entries.put(trackIdOf(file), length);
+            sizeBytes += length;
+        }
+        trimToSize();
+    }
+
+    /**
+     * Look up a track's audio, counting a hit or a miss
+     * @param trackId The Deezer track ID
+     * @return The complete audio file, or null if it is not cached
+     */
+    public synchronized File get(long trackId) {
+        load();
+        if (entries.get(trackId) != null) {
+            File file = fileFor(trackId);
+            if (file.isFile()) {
+                hits++;
+                return file;
+            }
+            // Deleted behind our back, e.g. by the system clearing the cache directory
+            sizeBytes -= entries.remove(trackId);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Remove a track's audio
+     * @param trackId The Deezer track ID
+     */
+    public synchronized void remove(long trackId) {
+        load();
+        Long length = entries.remove(trackId);
+        if (length != null) {
+            sizeBytes -= length;
+            fileFor(trackId).delete();
+        }
+    }
+
+    /**
+     * Create a unique file to download a track into; pass it to {@link #commit} when complete
+     * @param trackId The Deezer track ID
+     * @return A file in the cache directory that does not exist yet
+     */
+    synchronized File newPartFile(long trackId) {
+        // Load first: loading deletes part files, which must not include this one
+        load();
+        directory.mkdirs();
+        return new File(directory, trackId + "." + System.nanoTime() + PART_SUFFIX);
+    }
+
+    /**
+     * Add a complete download to the cache, replacing any older copy, and evict to stay under the cap
+     * @param trackId The Deezer track ID
+     * @param partFile The file from {@link #newPartFile} holding all the bytes
+     */
+    synchronized void commit(long trackId, File partFile) {
+        load();
+        File file = fileFor(trackId);
+        if (!partFile.renameTo(file)) {
+            partFile.delete();
+            return;
+        }
+
+        long length = file.length();
+        Long previous = entries.put(trackId, length);
+        sizeBytes += length - (previous != null ? previous : 0);
+        trimToSize();
+    }
+
+    /**
+     * Set the size cap, evicting least recently used audio if the cache is now over it
+     * @param maxSizeBytes Cap in bytes
+     */
+    public synchronized void setMaxSizeBytes(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+        load();
+        trimToSize();
+    }
+
+    public synchronized long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    /**
+     * @return Bytes of audio currently cached
+     */
+    public synchronized long getSizeBytes() {
+        load();
+        return sizeBytes;
+    }
+
+    /**
+     * @return Lookups that found the audio on disk
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return Lookups that had to stream from the network
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return Files removed to stay under the size cap
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AudioCache{size=" + sizeBytes + "/" + maxSizeBytes +
+                ", entries=" + entries.size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions + "}";
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<Long, Long>> it = entries.entrySet().iterator();
+        while (sizeBytes > maxSizeBytes && it.hasNext()) {
+            Map.Entry<Long, Long> eldest = it.next();
+            it.remove();
+            sizeBytes -= eldest.getValue();
+            fileFor(eldest.getKey()).delete();
+            evictions++;
+        }
+    }
+
+    private File fileFor(long trackId) {
+        return new File(directory, trackId + AUDIO_SUFFIX);
+    }
+
+    private static long trackIdOf(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - AUDIO_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -9,31 +9,57 @@ import android.content.Intent;
 import android.media.MediaPlayer;
 import android.os.Binder;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
+import androidx.lifecycle.LifecycleOwner;
 
 import com.example.mp3player.MainActivity;
 import com.example.mp3player.R;
+import com.example.mp3player.api.HttpClientProvider;
 import com.example.mp3player.models.Track;
+import com.example.mp3player.utils.TrackList;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.OkHttpClient;
 
 public class MusicService extends Service {
     private static final String TAG = "MusicService";
     private static final String CHANNEL_ID = "MusicPlaybackChannel";
     private static final int NOTIFICATION_ID = 1;
+    private static final String QUEUE_FILE_NAME = "playback_queue";
     
     private MediaPlayer mediaPlayer;
+    // Gapless mode: the following queue entry, prepared while the current one plays
+    private MediaPlayer nextPlayer;
+    private int nextPlayerEntry = -1;
+    private boolean nextPlayerPrepared;
+    // Whether setNextMediaPlayer succeeded, so the framework starts it at completion
+    private boolean nextPlayerChained;
+    private boolean gaplessEnabled = true;
     private Track currentTrack;
-    private List<Track> playlist;
-    private int currentIndex = 0;
+    private PlaybackQueue queue;
+    private boolean shuffleEnabled;
+    private PlaybackQueue.RepeatMode repeatMode = PlaybackQueue.RepeatMode.OFF;
     private final IBinder binder = new MusicBinder();
+    private AudioCache audioCache;
+    private OkHttpClient httpClient;
+    private ProgressPublisher progressPublisher;
+    private ExecutorService queueExecutor;
+    private QueueStore queueStore;
+    // Where a queue restored from disk stopped; nothing is loaded until the user resumes. -1 otherwise
+    private int restoredPosition = -1;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
-    private OnPlaybackStateChangeListener playbackStateChangeListener;
+    private final PlaybackEventDispatcher playbackEvents = new PlaybackEventDispatcher();
     
     public interface OnPlaybackStateChangeListener {
         void onPlaybackStateChanged(boolean isPlaying);
@@ -50,28 +76,60 @@ public class MusicService extends Service {
     @Override
     public void onCreate() {
         super.onCreate();
-        mediaPlayer = new MediaPlayer();
-        playlist = new ArrayList<>();
+        mediaPlayer = createPlayer();
+        queue = newQueue(TrackList.EMPTY, -1);
+        audioCache = AudioCache.getInstance(this);
+        httpClient = HttpClientProvider.getClient(this);
+        progressPublisher = new ProgressPublisher(() -> mediaPlayer, playbackEvents::onProgressChanged);
+        // Index the cached audio now rather than on the first play
+        new Thread(audioCache::load, "audio-cache-index").start();
         
-        mediaPlayer.setOnCompletionListener(mp -> {
-            // Automatically play next track when current track completes
-            if (hasNext()) {
-                next();
-            } else {
-                // End of playlist - stop playback
-                pause();
-                if (playbackStateChangeListener != null) {
-                    playbackStateChangeListener.onPlaybackStateChanged(false);
-                }
+        queueExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "queue-store"));
+        queueStore = new QueueStore(new File(getFilesDir(), QUEUE_FILE_NAME), queueExecutor);
+        // Read the last queue off the main thread; listeners see it as soon as it arrives
+        queueStore.load(snapshot -> {
+            if (snapshot != null) {
+                mainHandler.post(() -> restoreQueue(snapshot));
             }
         });
         
-        mediaPlayer.setOnErrorListener((mp, what, extra) -> {
+        createNotificationChannel();
+    }
+    
+    private MediaPlayer createPlayer() {
+        MediaPlayer player = new MediaPlayer();
+        player.setOnCompletionListener(this::onPlayerCompleted);
+        player.setOnErrorListener((mp, what, extra) -> {
             Log.e(TAG, "MediaPlayer error: " + what + ", " + extra);
+            if (mp == nextPlayer) {
+                // The next track could not be prepared; it is loaded the usual way when reached
+                releaseNextPlayer();
+                return true;
+            }
             return false;
         });
+        return player;
+    }
+    
+    private void onPlayerCompleted(MediaPlayer mp) {
+        if (mp != mediaPlayer) {
+            return;
+        }
         
-        createNotificationChannel();
+        if (nextPlayer != null && nextPlayerChained) {
+            // setNextMediaPlayer has already started the next track; just make it current
+            promoteNextPlayer(false);
+        } else if (nextPlayer != null && nextPlayerPrepared) {
+            // Prepared but never chained, so nothing started it
+            promoteNextPlayer(true);
+        } else if (queue.hasNext()) {
+            // Automatically play next track when current track completes
+            playTrack(queue.get(queue.moveToNext(false)));
+        } else {
+            // End of playlist - stop playback
+            pause();
+            notifyPlaybackStateChanged(false);
+        }
     }
     
     @Override
@@ -79,26 +137,103 @@ public class MusicService extends Service {
         return binder;
     }
     
-    public void setPlaybackStateChangeListener(OnPlaybackStateChangeListener listener) {
-        this.playbackStateChangeListener = listener;
+    /**
+     * Register for playback events, delivered on the main thread. The listener is called
+     * straight away with the current track, play state and progress if anything has played.
+     * @param listener Listener to add; remove it with {@link #removePlaybackStateChangeListener}
+     */
+    public void addPlaybackStateChangeListener(OnPlaybackStateChangeListener listener) {
+        playbackEvents.addListener(listener);
+    }
+    
+    public void removePlaybackStateChangeListener(OnPlaybackStateChangeListener listener) {
+        playbackEvents.removeListener(listener);
+    }
+    
+    /**
+     * Deliver {@link OnPlaybackStateChangeListener#onProgressChanged} on every display frame
+     * while the owner is started and audio is playing. Nothing is polled otherwise.
+     * @param owner A screen showing playback progress
+     */
+    public void observeProgress(LifecycleOwner owner) {
+        progressPublisher.observe(owner);
+    }
+    
+    private void notifyPlaybackStateChanged(boolean isPlaying) {
+        progressPublisher.onPlaybackChanged(isPlaying);
+        playbackEvents.onPlaybackStateChanged(isPlaying);
+    }
+    
+    /**
+     * Prepare the following queue entry on a second player while the current one plays,
+     * and chain the two so the next track starts without a network or decoder gap.
+     * On by default.
+     */
+    public void setGaplessEnabled(boolean enabled) {
+        gaplessEnabled = enabled;
+        if (enabled) {
+            prepareNextPlayer();
+        } else {
+            releaseNextPlayer();
+        }
+    }
+    
+    public boolean isGaplessEnabled() {
+        return gaplessEnabled;
+    }
+    
+    /**
+     * @return The on-disk cache of preview audio, for its counters and size cap
+     */
+    public AudioCache getAudioCache() {
+        return audioCache;
+    }
+    
+    /**
+     * Point a player at a track's audio: the cached file if there is one,
+     * otherwise the preview stream, which is saved to the cache as it plays
+     */
+    private void setAudioSource(MediaPlayer player, Track track) throws IOException {
+        File cached = audioCache.get(track.getId());
+        if (cached != null) {
+            player.setDataSource(cached.getPath());
+        } else if (track.getPreviewUrl() == null || track.getPreviewUrl().isEmpty()) {
+            throw new IOException("No preview for track " + track.getId());
+        } else {
+            player.setDataSource(new StreamingAudioSource(httpClient, track.getPreviewUrl(), audioCache, track.getId()));
+        }
     }
     
     public void playTrack(Track track) {
+        playTrack(track, 0);
+    }
+    
+    private void playTrack(Track track, int startPosition) {
         currentTrack = track;
+        restoredPosition = -1;
+        releaseNextPlayer();
+        if (isPlayingFromPlaylist()) {
+            queueStore.savePosition(queue.getCurrentEntry(), startPosition, 0);
+        }
         
         try {
             mediaPlayer.reset();
-            mediaPlayer.setDataSource(track.getPreviewUrl());
+            progressPublisher.onTrackLoading();
+            setAudioSource(mediaPlayer, track);
+            // Reset clears looping, so repeat-one is applied to every track loaded
+            mediaPlayer.setLooping(repeatMode == PlaybackQueue.RepeatMode.ONE);
             mediaPlayer.prepareAsync();
             
             mediaPlayer.setOnPreparedListener(mp -> {
+                if (startPosition > 0) {
+                    mp.seekTo(startPosition);
+                }
                 mp.start();
                 startForeground(NOTIFICATION_ID, createNotification());
                 
-                if (playbackStateChangeListener != null) {
-                    playbackStateChangeListener.onPlaybackStateChanged(true);
-                    playbackStateChangeListener.onTrackChanged(currentTrack);
-                }
+                notifyPlaybackStateChanged(true);
+                playbackEvents.onTrackChanged(currentTrack);
+                prepareNextPlayer();
             });
             
         } catch (IOException e) {
@@ -110,49 +245,48 @@ public class MusicService extends Service {
         if (mediaPlayer.isPlaying()) {
             mediaPlayer.pause();
             updateNotification();
+            saveQueuePosition();
             
-            if (playbackStateChangeListener != null) {
-                playbackStateChangeListener.onPlaybackStateChanged(false);
-            }
+            notifyPlaybackStateChanged(false);
         }
     }
     
     public void resume() {
-        if (!mediaPlayer.isPlaying()) {
+        if (restoredPosition >= 0) {
+            // A restored queue has nothing loaded yet; load it and carry on where it stopped
+            playTrack(currentTrack, restoredPosition);
+        } else if (!mediaPlayer.isPlaying()) {
             mediaPlayer.start();
             updateNotification();
             
-            if (playbackStateChangeListener != null) {
-                playbackStateChangeListener.onPlaybackStateChanged(true);
-            }
+            notifyPlaybackStateChanged(true);
         }
     }
     
     public void next() {
-        if (playlist != null && !playlist.isEmpty()) {
+        if (queue.size() > 0) {
             // Check if we're at the end of the playlist
-            if (currentIndex < playlist.size() - 1) {
-                currentIndex++;
-                playTrack(playlist.get(currentIndex));
+            if (nextPlayer != null && nextPlayerPrepared) {
+                // Already buffered; switch without touching the network
+                promoteNextPlayer(true);
+            } else if (queue.hasNext()) {
+                playTrack(queue.get(queue.moveToNext(true)));
             } else {
                 // At the end of playlist - stop playback
                 pause();
-                if (playbackStateChangeListener != null) {
-                    playbackStateChangeListener.onPlaybackStateChanged(false);
-                }
+                notifyPlaybackStateChanged(false);
             }
         }
     }
     
     public void previous() {
-        if (playlist != null && !playlist.isEmpty()) {
+        if (queue.size() > 0) {
             // If more than 3 seconds into the track, restart current track
             if (getCurrentPosition() > 3000) {
                 seekTo(0);
-            } else if (currentIndex > 0) {
+            } else if (queue.hasPrevious()) {
                 // Go to previous track
-                currentIndex--;
-                playTrack(playlist.get(currentIndex));
+                playTrack(queue.get(queue.moveToPrevious()));
             } else {
                 // At the beginning of playlist - restart first track
                 seekTo(0);
@@ -161,8 +295,13 @@ public class MusicService extends Service {
     }
     
     public void seekTo(int position) {
-        if (mediaPlayer != null) {
+        if (restoredPosition >= 0) {
+            // Applied when the restored track is loaded
+            restoredPosition = position;
+            playbackEvents.onProgressChanged(position, 0);
+        } else if (mediaPlayer != null) {
             mediaPlayer.seekTo(position);
+            progressPublisher.onSeek();
         }
     }
     
@@ -171,6 +310,9 @@ public class MusicService extends Service {
     }
     
     public int getCurrentPosition() {
+        if (restoredPosition >= 0) {
+            return restoredPosition;
+        }
         return mediaPlayer != null ? mediaPlayer.getCurrentPosition() : 0;
     }
     
@@ -182,28 +324,243 @@ public class MusicService extends Service {
         return currentTrack;
     }
     
+    /**
+     * Replace the queue and play from the given position
+     * @param tracks The tracks to queue; a TrackList is shared as is, anything else is copied once
+     * @param startIndex Position in tracks to start playing from
+     */
     public void setPlaylist(List<Track> tracks, int startIndex) {
-        this.playlist = new ArrayList<>(tracks);
-        this.currentIndex = startIndex;
-        if (!playlist.isEmpty() && startIndex >= 0 && startIndex < playlist.size()) {
-            playTrack(playlist.get(currentIndex));
+        queue = newQueue(TrackList.copyOf(tracks), startIndex);
+        queueStore.saveQueue(queue.snapshotTracks(), startIndex);
+        if (queue.getCurrent() != null) {
+            playTrack(queue.getCurrent());
         }
     }
     
-    public List<Track> getPlaylist() {
-        return playlist != null ? new ArrayList<>(playlist) : new ArrayList<>();
+    /**
+     * @return The queue's tracks in the order they were added, not the order they play in;
+     *         read-only and shared, so repeated calls copy nothing while the queue is unchanged
+     */
+    public TrackList getPlaylist() {
+        return queue.snapshotTracks();
     }
     
+    /**
+     * @return Position of the current track in {@link #getPlaylist}, or -1 if there is none
+     */
     public int getCurrentIndex() {
-        return currentIndex;
+        return queue.getCurrentEntry();
     }
     
     public boolean hasNext() {
-        return playlist != null && !playlist.isEmpty() && currentIndex < playlist.size() - 1;
+        return queue.hasNext();
     }
     
     public boolean hasPrevious() {
-        return playlist != null && !playlist.isEmpty() && currentIndex > 0;
+        return queue.hasPrevious();
+    }
+    
+    /**
+     * Add a track to play right after the current one
+     */
+    public void insertNext(Track track) {
+        queue.insertNext(track);
+        onQueueChanged();
+    }
+    
+    /**
+     * Add a track to the end of the queue
+     */
+    public void enqueue(Track track) {
+        queue.enqueue(track);
+        onQueueChanged();
+    }
+    
+    /**
+     * Shuffle the tracks still to come; turning it off plays them in list order again
+     */
+    public void setShuffleEnabled(boolean enabled) {
+        shuffleEnabled = enabled;
+        queue.setShuffle(enabled);
+        refreshNextPlayer();
+    }
+    
+    public boolean isShuffleEnabled() {
+        return shuffleEnabled;
+    }
+    
+    /**
+     * Repeat the whole queue, or loop the current track; skipping still moves on from a looped track
+     */
+    public void setRepeatMode(PlaybackQueue.RepeatMode mode) {
+        repeatMode = mode;
+        queue.setRepeatMode(mode);
+        mediaPlayer.setLooping(mode == PlaybackQueue.RepeatMode.ONE);
+        refreshNextPlayer();
+    }
+    
+    public PlaybackQueue.RepeatMode getRepeatMode() {
+        return repeatMode;
+    }
+    
+    private PlaybackQueue newQueue(TrackList tracks, int startIndex) {
+        PlaybackQueue newQueue = new PlaybackQueue(tracks, startIndex, shuffleEnabled);
+        newQueue.setRepeatMode(repeatMode);
+        return newQueue;
+    }
+    
+    private void onQueueChanged() {
+        queueStore.saveQueue(queue.snapshotTracks(), queue.getCurrentEntry());
+        refreshNextPlayer();
+    }
+    
+    /**
+     * Drop the prepared next player if the queue now continues with something else, and prepare that instead
+     */
+    private void refreshNextPlayer() {
+        if (nextPlayer != null && (repeatMode == PlaybackQueue.RepeatMode.ONE || queue.peekNext(true) != nextPlayerEntry)) {
+            releaseNextPlayer();
+        }
+        prepareNextPlayer();
+    }
+    
+    /**
+     * Start preparing the queue entry after the current one on a second player.
+     * Once both are prepared the current player hands over to it by itself at completion.
+     */
+    private void prepareNextPlayer() {
+        if (nextPlayer != null) {
+            // Already loading or loaded; the current player may only now be ready to chain it
+            chainNextPlayer();
+            return;
+        }
+        // Repeat-one loops the current player instead
+        if (!gaplessEnabled || repeatMode == PlaybackQueue.RepeatMode.ONE
+                || !isPlayingFromPlaylist()) {
+            return;
+        }
+        
+        int nextEntry = queue.peekNext(true);
+        if (nextEntry < 0) {
+            return;
+        }
+        Track next = queue.get(nextEntry);
+        if (next.getPreviewUrl() == null || next.getPreviewUrl().isEmpty()) {
+            return;
+        }
+        
+        MediaPlayer player = createPlayer();
+        nextPlayer = player;
+        nextPlayerEntry = nextEntry;
+        nextPlayerPrepared = false;
+        nextPlayerChained = false;
+        try {
+            setAudioSource(player, next);
+            player.setOnPreparedListener(mp -> {
+                if (mp != nextPlayer) {
+                    return; // Discarded while preparing
+                }
+                nextPlayerPrepared = true;
+                chainNextPlayer();
+            });
+            player.prepareAsync();
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "Error preparing next track", e);
+            releaseNextPlayer();
+        }
+    }
+    
+    /**
+     * Have the current player start the prepared next one at completion
+     */
+    private void chainNextPlayer() {
+        if (!nextPlayerPrepared || nextPlayerChained) {
+            return;
+        }
+        try {
+            mediaPlayer.setNextMediaPlayer(nextPlayer);
+            nextPlayerChained = true;
+        } catch (IllegalStateException e) {
+            // Current player is not prepared yet; its onPrepared chains again, and until
+            // then completion and next() start this one themselves
+            Log.w(TAG, "Could not chain next player", e);
+        }
+    }
+    
+    /**
+     * Make the prepared next player the current one
+     * @param start Whether to start it; false when the framework already did at completion
+     */
+    private void promoteNextPlayer(boolean start) {
+        MediaPlayer previous = mediaPlayer;
+        mediaPlayer = nextPlayer;
+        currentTrack = queue.get(queue.moveToNext(true));
+        nextPlayer = null;
+        nextPlayerEntry = -1;
+        nextPlayerPrepared = false;
+        nextPlayerChained = false;
+        
+        previous.release();
+        if (start) {
+            mediaPlayer.start();
+        }
+        queueStore.savePosition(queue.getCurrentEntry(), 0, mediaPlayer.getDuration());
+        updateNotification();
+        
+        notifyPlaybackStateChanged(true);
+        playbackEvents.onTrackChanged(currentTrack);
+        prepareNextPlayer();
+    }
+    
+    private void releaseNextPlayer() {
+        if (nextPlayer == null) {
+            return;
+        }
+        try {
+            mediaPlayer.setNextMediaPlayer(null);
+        } catch (IllegalStateException e) {
+            // Current player was never prepared, so nothing is chained
+        }
+        nextPlayer.release();
+        nextPlayer = null;
+        nextPlayerEntry = -1;
+        nextPlayerPrepared = false;
+        nextPlayerChained = false;
+    }
+    
+    /**
+     * Show the queue saved by an earlier process, paused where it stopped.
+     * Its audio is only loaded when the user resumes.
+     */
+    private void restoreQueue(QueueStore.Snapshot snapshot) {
+        if (currentTrack != null) {
+            return; // Something started playing before the snapshot was read
+        }
+        
+        queue = newQueue(snapshot.tracks, snapshot.index);
+        currentTrack = queue.getCurrent();
+        restoredPosition = snapshot.positionMs;
+        
+        playbackEvents.onTrackChanged(currentTrack);
+        playbackEvents.onPlaybackStateChanged(false);
+        playbackEvents.onProgressChanged(snapshot.positionMs, snapshot.durationMs);
+    }
+    
+    /**
+     * Record the position in the current queue entry; the player must be prepared
+     */
+    private void saveQueuePosition() {
+        if (isPlayingFromPlaylist()) {
+            queueStore.savePosition(queue.getCurrentEntry(), mediaPlayer.getCurrentPosition(), mediaPlayer.getDuration());
+        }
+    }
+    
+    /**
+     * @return true if the current track is the current queue entry, not one played on its own
+     */
+    private boolean isPlayingFromPlaylist() {
+        Track current = queue.getCurrent();
+        return currentTrack != null && current != null && current.getId() == currentTrack.getId();
     }
     
     private void createNotificationChannel() {
@@ -251,7 +608,16 @@ public class MusicService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        progressPublisher.release();
+        playbackEvents.clear();
+        mainHandler.removeCallbacksAndMessages(null);
+        if (isPlaying()) {
+            saveQueuePosition();
+        }
+        // Pending writes still run; nothing new is accepted
+        queueExecutor.shutdown();
         if (mediaPlayer != null) {
+            releaseNextPlayer();
             mediaPlayer.release();
             mediaPlayer = null;
         }
@@ -0,0 +1,93 @@
+package com.example.mp3player.services;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.mp3player.models.PlaybackState;
+import com.example.mp3player.models.Track;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fans playback events out to every registered listener on the main thread.
+ * Registration is copy-on-write, so listeners may add or remove themselves from
+ * inside a callback. The last state is kept and replayed to each new listener,
+ * so a screen that binds or rebinds is up to date without asking the service.
+ */
+class PlaybackEventDispatcher implements MusicService.OnPlaybackStateChangeListener {
+    private final CopyOnWriteArrayList<MusicService.OnPlaybackStateChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Only read and written on the main thread
+    private final PlaybackState lastState = new PlaybackState();
+
+    /**
+     * Register a listener and replay the last state to it
+     * @param listener Listener to add; adding one twice has no effect
+     */
+    void addListener(MusicService.OnPlaybackStateChangeListener listener) {
+        if (listeners.addIfAbsent(listener)) {
+            runOnMain(() -> {
+                // Skip if removed before the replay ran
+                if (listeners.contains(listener)) {
+                    replay(listener);
+                }
+            });
+        }
+    }
+
+    void removeListener(MusicService.OnPlaybackStateChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    void clear() {
+        listeners.clear();
+    }
+
+    @Override
+    public void onPlaybackStateChanged(boolean isPlaying) {
+        runOnMain(() -> {
+            lastState.setPlaying(isPlaying);
+            for (MusicService.OnPlaybackStateChangeListener listener : listeners) {
+                listener.onPlaybackStateChanged(isPlaying);
+            }
+        });
+    }
+
+    @Override
+    public void onTrackChanged(Track track) {
+        runOnMain(() -> {
+            lastState.setCurrentTrack(track);
+            for (MusicService.OnPlaybackStateChangeListener listener : listeners) {
+                listener.onTrackChanged(track);
+            }
+        });
+    }
+
+    @Override
+    public void onProgressChanged(int position, int duration) {
+        runOnMain(() -> {
+            lastState.setCurrentPosition(position);
+            lastState.setDuration(duration);
+            for (MusicService.OnPlaybackStateChangeListener listener : listeners) {
+                listener.onProgressChanged(position, duration);
+            }
+        });
+    }
+
+    private void replay(MusicService.OnPlaybackStateChangeListener listener) {
+        if (lastState.getCurrentTrack() == null) {
+            return; // Nothing has played yet
+        }
+        listener.onTrackChanged(lastState.getCurrentTrack());
+        listener.onPlaybackStateChanged(lastState.isPlaying());
+        listener.onProgressChanged(lastState.getCurrentPosition(), lastState.getDuration());
+    }
+
+    private void runOnMain(Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainHandler.post(action);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.mp3player.services;
+
+import com.example.mp3player.models.Track;
+import com.example.mp3player.utils.IntDeque;
+import com.example.mp3player.utils.TrackList;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Play order over a list of tracks, with shuffle and repeat.
+ * Every track in the queue is an entry, numbered in the order it was added. Entries
+ * still to come are drawn from an int array that starts out as the identity and is
+ * only allocated once shuffle first moves something; shuffle picks each next entry
+ * with one step of Fisher-Yates at the moment it is needed, so a queue of any length
+ * costs nothing to shuffle up front. Entries inserted to play next, and entries
+ * stepped back over, wait in front of that order. Moving to the next or previous
+ * entry, inserting and enqueueing are all O(1) amortized.
+ * Not thread-safe; MusicService uses it on the main thread only.
+ */
+public class PlaybackQueue {
+    public enum RepeatMode {
+        OFF,
+        ALL,
+        ONE
+    }
+
+    // Tracks the queue was created with, shared with the caller and never modified
+    private final List<Track> baseTracks;
+    // Tracks inserted or enqueued later; entry numbers continue after the base tracks
+    private final ArrayList<Track> addedTracks = new ArrayList<>();
+    private final Random random;
+    // Last result of snapshotTracks, until tracks are added
+    private TrackList snapshot;
+
+    // Entries not yet played are order[orderPos..orderSize). While order is null it is
+    // the identity; otherwise a slot holds entry + 1, and 0 still means the identity
+    private int[] order;
+    private int orderPos;
+    private int orderSize;
+    // Slots before this have had their shuffle draw made, e.g. by peekNext
+    private int drawnUpTo;
+
+    // Entries to play before the order continues, first one next
+    private final IntDeque upNext = new IntDeque();
+    // Entries played so far, the current one last. Entries 0..implicitHistory-1 come
+    // first without being stored, as when a list is started from the middle
+    private final IntDeque history = new IntDeque();
+    private int implicitHistory;
+
+    private boolean shuffle;
+    private RepeatMode repeatMode = RepeatMode.OFF;
+
+    /**
+     * @param tracks The tracks to play; kept, not copied, and must not be modified afterwards
+     * @param startIndex Entry to make current, or -1 to start before the first one
+     * @param shuffle Whether to shuffle; the start entry stays current and all others follow in random order
+     */
+    public PlaybackQueue(List<Track> tracks, int startIndex, boolean shuffle) {
+        this(tracks, startIndex, shuffle, new Random());
+    }
+
+    PlaybackQueue(List<Track> tracks, int startIndex, boolean shuffle, Random random) {
+        this.baseTracks = tracks;
+        this.random = random;
+        this.shuffle = shuffle;
+        orderSize = tracks.size();
+        if (startIndex < 0 || startIndex >= orderSize) {
+            return;
+        }
+
+        if (shuffle) {
+            // Draw the start entry first, so every other entry is still to come
+            swap(0, startIndex);
+            orderPos = 1;
+            history.addLast(startIndex);
+        } else {
+            orderPos = startIndex + 1;
+            implicitHistory = startIndex + 1;
+        }
+        drawnUpTo = orderPos;
+    }
+
+    /**
+     * @return Number of entries
+     */
+    public int size() {
+        return baseTracks.size() + addedTracks.size();
+    }
+
+    public Track get(int entry) {
+        int baseSize = baseTracks.size();
+        return entry < baseSize ? baseTracks.get(entry) : addedTracks.get(entry - baseSize);
+    }
+
+    /**
+     * @return All entries in the order they were added, as a read-only view
+     */
+    public List<Track> getTracks() {
+        return new AbstractList<Track>() {
+            @Override
+            public Track get(int index) {
+                return PlaybackQueue.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return PlaybackQueue.this.size();
+            }
+        };
+    }
+
+    /**
+     * @return All entries in the order they were added, unaffected by later changes to the queue.
+     *         The same instance is returned until tracks are added; if the queue was created
+     *         from a TrackList and nothing was added, it is that list.
+     */
+    public TrackList snapshotTracks() {
+        if (snapshot == null) {
+            snapshot = TrackList.concat(baseTracks, addedTracks);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return The current entry, or -1 if nothing has been played yet
+     */
+    public int getCurrentEntry() {
+        if (!history.isEmpty()) {
+            return history.peekLast();
+        }
+        return implicitHistory - 1;
+    }
+
+    /**
+     * @return The current track, or null if nothing has been played yet
+     */
+    public Track getCurrent() {
+        int entry = getCurrentEntry();
+        return entry >= 0 ? get(entry) : null;
+    }
+
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    /**
+     * Turn shuffle on or off for the entries still to come. Turning it off puts
+     * them back in the order they were added; entries inserted to play next keep their place.
+     */
+    public void setShuffle(boolean shuffle) {
+        if (this.shuffle == shuffle) {
+            return;
+        }
+        this.shuffle = shuffle;
+        if (!shuffle && order != null) {
+            // Entry numbers follow the order of adding, so sorting them restores it
+            for (int i = orderPos; i < orderSize; i++) {
+                order[i] = orderAt(i) + 1;
+            }
+            Arrays.sort(order, orderPos, orderSize);
+        }
+        drawnUpTo = orderPos;
+    }
+
+    public RepeatMode getRepeatMode() {
+        return repeatMode;
+    }
+
+    public void setRepeatMode(RepeatMode repeatMode) {
+        this.repeatMode = repeatMode;
+    }
+
+    public boolean hasNext() {
+        return !upNext.isEmpty() || orderPos < orderSize || (repeatMode == RepeatMode.ALL && size() > 0);
+    }
+
+    public boolean hasPrevious() {
+        return history.size() + implicitHistory > 1;
+    }
+
+    /**
+     * Look at the entry {@link #moveToNext} would move to, without moving
+     * @param userInitiated false when the current entry played to its end, which repeat-one replays
+     * @return The entry, or -1 at the end of the queue
+     */
+    public int peekNext(boolean userInitiated) {
+        if (!userInitiated && repeatMode == RepeatMode.ONE && getCurrentEntry() >= 0) {
+            return getCurrentEntry();
+        }
+        if (!upNext.isEmpty()) {
+            return upNext.peekFirst();
+        }
+        if (orderPos == orderSize) {
+            if (repeatMode != RepeatMode.ALL || size() == 0) {
+                return -1;
+            }
+            startNewCycle();
+        }
+        if (shuffle && orderPos >= drawnUpTo) {
+            // One step of Fisher-Yates: any entry still to come is equally likely
+            swap(orderPos, orderPos + random.nextInt(orderSize - orderPos));
+            drawnUpTo = orderPos + 1;
+        }
+        return orderAt(orderPos);
+    }
+
+    /**
+     * Move to the next entry and make it current
+     * @param userInitiated false when the current entry played to its end, which repeat-one replays
+     * @return The new current entry, or -1 at the end of the queue
+     */
+    public int moveToNext(boolean userInitiated) {
+        if (!userInitiated && repeatMode == RepeatMode.ONE && getCurrentEntry() >= 0) {
+            return getCurrentEntry();
+        }
+        int entry = peekNext(true);
+        if (entry < 0) {
+            return -1;
+        }
+        if (!upNext.isEmpty()) {
+            upNext.pollFirst();
+        } else {
+            orderPos++;
+        }
+        history.addLast(entry);
+        return entry;
+    }
+
+    /**
+     * Move back to the entry played before the current one; moving forward again replays the same entries
+     * @return The new current entry, or -1 if there is none before the current one
+     */
+    public int moveToPrevious() {
+        if (!hasPrevious()) {
+            return -1;
+        }
+        int current;
+        if (!history.isEmpty()) {
+            current = history.pollLast();
+        } else {
+            current = --implicitHistory;
+        }
+        upNext.addFirst(current);
+        return getCurrentEntry();
+    }
+
+    /**
+     * Add a track to play right after the current one, ahead of anything inserted before
+     * @return Its entry
+     */
+    public int insertNext(Track track) {
+        int entry = addEntry(track);
+        upNext.addFirst(entry);
+        return entry;
+    }
+
+    /**
+     * Add a track to play after everything else; with shuffle on it can come up any time
+     * @return Its entry
+     */
+    public int enqueue(Track track) {
+        int entry = addEntry(track);
+        if (order == null && entry == orderSize) {
+            orderSize++; // Still the identity
+        } else {
+            ensureOrder(orderSize + 1);
+            order[orderSize++] = entry + 1;
+        }
+        return entry;
+    }
+
+    private int addEntry(Track track) {
+        addedTracks.add(track);
+        snapshot = null;
+        return size() - 1;
+    }
+
+    /**
+     * Repeat-all reached the end: every entry is to come again, in the order they were added
+     */
+    private void startNewCycle() {
+        order = null;
+        orderPos = 0;
+        orderSize = size();
+        drawnUpTo = 0;
+    }
+
+    private int orderAt(int index) {
+        if (order == null) {
+            return index;
+        }
+        int value = order[index];
+        return value == 0 ? index : value - 1;
+    }
+
+    private void swap(int i, int j) {
+        if (i == j) {
+            return;
+        }
+        ensureOrder(orderSize);
+        int a = orderAt(i);
+        order[i] = orderAt(j) + 1;
+        order[j] = a + 1;
+    }
+
+    private void ensureOrder(int capacity) {
+        if (order == null) {
+            // Zero-filled, which reads as the identity
+            order = new int[Math.max(capacity, size())];
+        } else if (order.length < capacity) {
+            order = Arrays.copyOf(order, Math.max(capacity, order.length * 2));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.mp3player.services;
+
+import android.media.MediaPlayer;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.function.Supplier;
+
+/**
+ * Pushes playback progress to the UI instead of the UI polling for it.
+ * While a screen showing progress is started and audio is playing, progress is
+ * published once per display frame; otherwise nothing runs at all. The player is
+ * only asked for its position about once a second and on every state change,
+ * and frames in between extrapolate from that reading, so a smooth seek bar
+ * does not cost a call into the media server per frame.
+ * All methods must be called on the main thread.
+ */
+class ProgressPublisher implements Choreographer.FrameCallback {
+    // How long to extrapolate before reading the player's position again
+    private static final long RESYNC_INTERVAL_NANOS = 1_000_000_000L;
+
+    interface Sink {
+        void onProgress(int position, int duration);
+    }
+
+    private final Supplier<MediaPlayer> player;
+    private final Sink sink;
+    private final Choreographer choreographer = Choreographer.getInstance();
+
+    private int visibleObservers;
+    // The player may only be asked for its position and duration once prepared
+    private boolean prepared;
+    private boolean playing;
+    private boolean frameScheduled;
+    private boolean released;
+
+    // Last position read from the player, and when it was read
+    private int anchorPosition;
+    private long anchorTimeNanos;
+    private int duration;
+    private int lastPublished = -1;
+    private int lastPublishedDuration = -1;
+
+    /**
+     * @param player Current player; may change between calls, e.g. on a gapless handover
+     * @param sink Receives progress on the main thread
+     */
+    ProgressPublisher(Supplier<MediaPlayer> player, Sink sink) {
+        this.player = player;
+        this.sink = sink;
+    }
+
+    /**
+     * Publish progress while the owner is started
+     * @param owner A screen showing progress
+     */
+    void observe(LifecycleOwner owner) {
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                visibleObservers++;
+                // Bring the screen up to date even if paused, then follow playback
+                publishNow();
+                updateSchedule();
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                visibleObservers--;
+                updateSchedule();
+            }
+
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner owner) {
+                owner.getLifecycle().removeObserver(this);
+            }
+        });
+    }
+
+    /**
+     * Call whenever the prepared player starts, pauses, seeks or changes track
+     * @param playing Whether audio is now playing
+     */
+    void onPlaybackChanged(boolean playing) {
+        this.prepared = true;
+        this.playing = playing;
+        publishNow();
+        updateSchedule();
+    }
+
+    /**
+     * Call after seeking, so the new position shows at once rather than on the next reading
+     */
+    void onSeek() {
+        publishNow();
+    }
+
+    /**
+     * Call when the player is reset to load another track; progress reads zero until it is prepared
+     */
+    void onTrackLoading() {
+        prepared = false;
+        playing = false;
+        publishNow();
+        updateSchedule();
+    }
+
+    /**
+     * Stop publishing for good; the service is going away
+     */
+    void release() {
+        released = true;
+        updateSchedule();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (!shouldRun()) {
+            return;
+        }
+
+        if (frameTimeNanos - anchorTimeNanos >= RESYNC_INTERVAL_NANOS) {
+            resync();
+        }
+        // Frame time can be slightly behind the time of the last reading
+        long elapsedMs = Math.max(0, (frameTimeNanos - anchorTimeNanos) / 1_000_000L);
+        int position = (int) Math.min(anchorPosition + elapsedMs, duration > 0 ? duration : Integer.MAX_VALUE);
+        publish(position);
+        scheduleFrame();
+    }
+
+    private void publishNow() {
+        if (visibleObservers > 0 && !released) {
+            resync();
+            // Always sent, so a screen that has just started gets a value even if nothing changed
+            lastPublished = -1;
+            publish(anchorPosition);
+        }
+    }
+
+    private void publish(int position) {
+        if (position != lastPublished || duration != lastPublishedDuration) {
+            lastPublished = position;
+            lastPublishedDuration = duration;
+            sink.onProgress(position, duration);
+        }
+    }
+
+    private void resync() {
+        anchorTimeNanos = System.nanoTime();
+        MediaPlayer current = player.get();
+        if (!prepared || current == null) {
+            anchorPosition = 0;
+            duration = 0;
+            return;
+        }
+        try {
+            anchorPosition = current.getCurrentPosition();
+            duration = current.getDuration();
+        } catch (IllegalStateException e) {
+            // Already released
+            anchorPosition = 0;
+            duration = 0;
+        }
+    }
+
+    private boolean shouldRun() {
+        return !released && playing && visibleObservers > 0;
+    }
+
+    private void updateSchedule() {
+        if (shouldRun()) {
+            scheduleFrame();
+        } else if (frameScheduled) {
+            choreographer.removeFrameCallback(this);
+            frameScheduled = false;
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.mp3player.services;
+
+import android.util.Log;
+
+import com.example.mp3player.models.Track;
+import com.example.mp3player.utils.TrackList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Snapshot of the playback queue on disk, so it survives process death.
+ * The file starts with a fixed-size header holding the current index, position and
+ * duration, followed by the track IDs and then the fields a queue entry needs to play
+ * and show. Moving through the queue only rewrites the header in place; the rest is
+ * written when the queue itself changes. All file access runs on one background
+ * thread, in the order it was requested.
+ */
+class QueueStore {
+    private static final String TAG = "QueueStore";
+    private static final int MAGIC = 0x51554555; // "QUEU"
+    // Version 2 stores the cover URLs as a counted list, so sizes can be added
+    // without another version; version 1 files, four fixed covers, are still read
+    private static final int VERSION = 2;
+    private static final int VERSION_FIXED_COVERS = 1;
+    private static final int COVER_COUNT = 4;
+    // Offset of the index, position and duration ints, after the magic and version
+    private static final long HEADER_STATE_OFFSET = 8;
+
+    /**
+     * A queue read back from disk
+     */
+    static final class Snapshot {
+        final TrackList tracks;
+        final int index;
+        final int positionMs;
+        final int durationMs;
+
+        Snapshot(TrackList tracks, int index, int positionMs, int durationMs) {
+            this.tracks = tracks;
+            this.index = index;
+            this.positionMs = positionMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private final File file;
+    private final Executor executor;
+
+    /**
+     * @param file Where the snapshot lives
+     * @param executor Runs the file access; must run tasks one at a time, in order
+     */
+    QueueStore(File file, Executor executor) {
+        this.file = file;
+        this.executor = executor;
+    }
+
+    /**
+     * Replace the stored queue, starting at the beginning of the given entry
+     * @param tracks The new queue; must not be modified afterwards
+     * @param index Current entry
+     */
+    void saveQueue(List<Track> tracks, int index) {
+        executor.execute(() -> {
+            File temp = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(index);
+                out.writeInt(0);
+                out.writeInt(0);
+                out.writeInt(tracks.size());
+                for (Track track : tracks) {
+                    out.writeLong(track.getId());
+                }
+                for (Track track : tracks) {
+                    writeTrack(out, track);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving queue", e);
+                temp.delete();
+                return;
+            }
+            // Replace in one step, so a crash mid-write leaves the previous snapshot intact
+            if (!temp.renameTo(file)) {
+                Log.e(TAG, "Error replacing queue snapshot");
+                temp.delete();
+            }
+        });
+    }
+
+    /**
+     * Record where playback is in the stored queue; does nothing if no queue is stored
+     * @param index Current entry
+     * @param positionMs Position in the current entry
+     * @param durationMs Length of the current entry, or 0 if not known
+     */
+    void savePosition(int index, int positionMs, int durationMs) {
+        executor.execute(() -> {
+            if (!file.isFile()) {
+                return;
+            }
+            try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                out.seek(HEADER_STATE_OFFSET);
+                out.writeInt(index);
+                out.writeInt(positionMs);
+                out.writeInt(durationMs);
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving queue position", e);
+            }
+        });
+    }
+
+    /**
+     * Read the stored queue in the background
+     * @param callback Called on the store's thread with the snapshot, or null if there is none
+     */
+    void load(Consumer<Snapshot> callback) {
+        executor.execute(() -> callback.accept(read()));
+    }
+
+    /**
+     * @return The stored queue, or null if there is none or it cannot be read
+     */
+    Snapshot read() {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != VERSION_FIXED_COVERS) {
+                return null;
+            }
+            int index = in.readInt();
+            int positionMs = in.readInt();
+            int durationMs = in.readInt();
+            int count = in.readInt();
+            if (count <= 0 || index < 0 || index >= count) {
+                return null;
+            }
+
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readLong();
+            }
+            List<Track> tracks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tracks.add(readTrack(in, ids[i], version));
+            }
+            return new Snapshot(TrackList.copyOf(tracks), index, positionMs, durationMs);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading queue snapshot", e);
+            return null;
+        }
+    }
+
+    private static void writeTrack(DataOutputStream out, Track track) throws IOException {
+        writeString(out, track.getTitle());
+        writeString(out, track.getArtist());
+        writeString(out, track.getAlbum());
+        // Every cover size, smallest first, so a restored entry shows the same artwork
+        out.writeByte(COVER_COUNT);
+        writeString(out, track.getArtworkSmallUrl());
+        writeString(out, track.getArtworkUrl());
+        writeString(out, track.getArtworkBigUrl());
+        writeString(out, track.getArtworkXlUrl());
+        writeString(out, track.getPreviewUrl());
+        out.writeInt(track.getDuration());
+        out.writeBoolean(track.isInLibrary());
+    }
+
+    private static Track readTrack(DataInputStream in, long id, int version) throws IOException {
+        Track track = new Track();
+        track.setId(id);
+        track.setTitle(readString(in));
+        track.setArtist(readString(in));
+        track.setAlbum(readString(in));
+        int covers = version == VERSION_FIXED_COVERS ? COVER_COUNT : in.readUnsignedByte();
+        String[] urls = new String[Math.max(covers, COVER_COUNT)];
+        for (int i = 0; i < covers; i++) {
+            urls[i] = readString(in);
+        }
+        track.setArtworkSmallUrl(urls[0]);
+        track.setArtworkUrl(urls[1]);
+        track.setArtworkBigUrl(urls[2]);
+        track.setArtworkXlUrl(urls[3]);
+        track.setPreviewUrl(readString(in));
+        track.setDuration(in.readInt());
+        track.setInLibrary(in.readBoolean());
+        return track;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
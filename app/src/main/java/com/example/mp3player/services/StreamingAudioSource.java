@@ -0,0 +1,194 @@
+package com.example.mp3player.services;
+
+import android.media.MediaDataSource;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * MediaPlayer source that streams a preview while saving it to the audio cache.
+ * The download runs on OkHttp's threads and writes to a part file; reads from the
+ * player wait until the bytes they ask for have arrived and are served from that
+ * file. A download that completes is committed to the cache, so the next play of
+ * the track never touches the network.
+ */
+class StreamingAudioSource extends MediaDataSource {
+    private static final String TAG = "StreamingAudioSource";
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final AudioCache cache;
+    private final long trackId;
+    private final File partFile;
+    private final Call call;
+
+    // Guards all fields below; the download thread notifies on every chunk
+    private final Object lock = new Object();
+    private long contentLength = -1;
+    private boolean headersReceived;
+    private long downloaded;
+    private boolean complete;
+    private boolean closed;
+    private IOException failure;
+    private RandomAccessFile reader;
+
+    StreamingAudioSource(OkHttpClient client, String url, AudioCache cache, long trackId) {
+        this.cache = cache;
+        this.trackId = trackId;
+        this.partFile = cache.newPartFile(trackId);
+        // The audio cache keeps the bytes; storing them in the HTTP cache as well would only evict API responses
+        this.call = client.newCall(new Request.Builder()
+                .url(url)
+                .cacheControl(new CacheControl.Builder().noStore().build())
+                .build());
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                fail(e);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful() || body == null) {
+                        fail(new IOException("HTTP " + response.code() + " for track " + trackId));
+                        return;
+                    }
+                    download(body);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        });
+    }
+
+    private void download(ResponseBody body) throws IOException {
+        boolean endOfStream;
+        try (RandomAccessFile out = new RandomAccessFile(partFile, "rw");
+             InputStream in = body.byteStream()) {
+            synchronized (lock) {
+                if (closed) {
+                    partFile.delete();
+                    return;
+                }
+                // Opened on the part file now, so the handle survives the rename on commit
+                // and a later eviction of the cached file
+                reader = new RandomAccessFile(partFile, "r");
+                contentLength = body.contentLength();
+                headersReceived = true;
+                lock.notifyAll();
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                synchronized (lock) {
+                    downloaded += read;
+                    lock.notifyAll();
+                    if (closed) {
+                        break;
+                    }
+                }
+            }
+            // Closing right after the last chunk still leaves a complete file
+            endOfStream = read == -1 || (contentLength >= 0 && downloaded == contentLength);
+        }
+
+        synchronized (lock) {
+            if (!endOfStream) {
+                // Closed mid-download; without a Content-Length the part file could pass for complete
+                partFile.delete();
+                return;
+            }
+            if (contentLength >= 0 && downloaded != contentLength) {
+                throw new IOException("Preview truncated at " + downloaded + " of " + contentLength + " bytes");
+            }
+            complete = true;
+            contentLength = downloaded;
+            lock.notifyAll();
+        }
+        // Even if the player has let go meanwhile, a complete download is worth keeping
+        cache.commit(trackId, partFile);
+    }
+
+    private void fail(IOException e) {
+        synchronized (lock) {
+            if (!closed) {
+                Log.e(TAG, "Streaming track " + trackId + " failed", e);
+            }
+            failure = e;
+            headersReceived = true;
+            lock.notifyAll();
+        }
+        partFile.delete();
+    }
+
+    @Override
+    public int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+        synchronized (lock) {
+            while (!closed && failure == null && !complete && downloaded <= position) {
+                awaitLocked();
+            }
+            if (closed || (complete && position >= downloaded)) {
+                return -1; // End of stream
+            }
+            if (downloaded <= position) {
+                throw failure;
+            }
+
+            reader.seek(position);
+            return reader.read(buffer, offset, (int) Math.min(size, downloaded - position));
+        }
+    }
+
+    @Override
+    public long getSize() throws IOException {
+        synchronized (lock) {
+            while (!closed && !headersReceived) {
+                awaitLocked();
+            }
+            // -1 if the server sent no length; the player then reads until end of stream
+            return contentLength;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        }
+        if (!complete) {
+            call.cancel();
+        }
+    }
+
+    private void awaitLocked() throws IOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for audio", e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.mp3player.ui.adapters;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,27 +10,69 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.mp3player.R;
 import com.example.mp3player.models.Track;
+import com.example.mp3player.utils.ArtworkStats;
+import com.example.mp3player.utils.LongHashSet;
+import com.example.mp3player.utils.TrackPager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
+/**
+ * Track rows backed either by a plain list or by a TrackPager.
+ * A new list is diffed against the shown one on a background thread, and so is
+ * a new pager whose rows are all in memory, so a refresh only rebinds the rows
+ * that changed. Row IDs are the Deezer track IDs.
+ */
 public class TrackAdapter extends RecyclerView.Adapter<TrackAdapter.TrackViewHolder> {
-    private List<Track> tracks;
+    private final AsyncListDiffer<Track> differ;
+    private final Executor diffExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private TrackPager pager;
     private OnTrackClickListener listener;
     
+    // Pager waiting for its diff against the shown one; a newer setPager() supersedes it
+    private TrackPager pendingPager;
+    private int pagerGeneration;
+    
+    private final TrackPager.Listener pagerListener = new TrackPager.Listener() {
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            notifyItemRangeInserted(positionStart, itemCount);
+        }
+        
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            notifyItemRangeRemoved(positionStart, itemCount);
+        }
+        
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            notifyItemRangeChanged(positionStart, itemCount, payload);
+        }
+    };
+    
     public interface OnTrackClickListener {
         void onTrackClick(Track track);
         void onMoreClick(Track track);
     }
     
     public TrackAdapter(OnTrackClickListener listener) {
-        this.tracks = new ArrayList<>();
+        AsyncDifferConfig<Track> config = new AsyncDifferConfig.Builder<>(TrackDiffCallback.INSTANCE).build();
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this), config);
+        this.diffExecutor = config.getBackgroundThreadExecutor();
         this.listener = listener;
+        setHasStableIds(true);
     }
     
     @NonNull
@@ -36,49 +80,237 @@ public class TrackAdapter extends RecyclerView.Adapter<TrackAdapter.TrackViewHol
     public TrackViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_track, parent, false);
-        return new TrackViewHolder(view);
+        return new TrackViewHolder(view, TrackArtwork.thumbnailSize(parent.getContext()));
     }
     
     @Override
     public void onBindViewHolder(@NonNull TrackViewHolder holder, int position) {
-        Track track = tracks.get(position);
-        holder.bind(track, listener);
+        // Binding drives the pager's prefetch and eviction
+        Track track = pager != null ? pager.get(position) : differ.getCurrentList().get(position);
+        if (track != null) {
+            holder.bind(track, listener);
+        } else {
+            holder.bindPlaceholder();
+        }
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull TrackViewHolder holder, int position, @NonNull List<Object> payloads) {
+        Track track = getTrack(position);
+        if (track != null && !payloads.isEmpty() && onlyInLibraryChanged(payloads)) {
+            holder.bindInLibrary(track);
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
     
     @Override
     public int getItemCount() {
-        return tracks.size();
+        return pager != null ? pager.size() : differ.getCurrentList().size();
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        Track track = getTrack(position);
+        // Track IDs are unique within the list, both modes drop repeats; rows of a page
+        // being reloaded get an ID no track has, unique per position
+        return track != null ? track.getId() : -2L - position;
+    }
+    
+    /**
+     * Get the track shown at a position without affecting paging
+     * @param position The adapter position
+     * @return The track, or null if the row is a placeholder or the position is out of range
+     */
+    public Track getTrack(int position) {
+        if (pager != null) {
+            return pager.peek(position);
+        }
+        List<Track> tracks = differ.getCurrentList();
+        return position >= 0 && position < tracks.size() ? tracks.get(position) : null;
+    }
+    
+    /**
+     * Show a paged list; rows are inserted as pages arrive.
+     * If both the shown and the new pager hold all their rows in memory, the
+     * swap is diffed in the background and the old rows stay until it is done.
+     * @param newPager The pager to display, or null to clear
+     */
+    public void setPager(TrackPager newPager) {
+        int generation = ++pagerGeneration;
+        if (pendingPager != null && pendingPager != newPager) {
+            pendingPager.release();
+        }
+        pendingPager = null;
+        if (pager == newPager) {
+            return;
+        }
+        
+        // Leaving list mode: the list rows go first so counts stay consistent
+        if (!differ.getCurrentList().isEmpty()) {
+            differ.submitList(null);
+        }
+        
+        List<Track> oldTracks = pager != null ? pager.snapshot() : Collections.<Track>emptyList();
+        List<Track> newTracks = newPager != null ? newPager.snapshot() : Collections.<Track>emptyList();
+        if (oldTracks == null || newTracks == null) {
+            showPager(newPager);
+            notifyDataSetChanged();
+            return;
+        }
+        if (oldTracks.isEmpty() || newTracks.isEmpty()) {
+            // Nothing to diff, all rows are inserted or removed
+            int oldCount = getItemCount();
+            showPager(newPager);
+            notifyItemRangeRemoved(0, oldCount);
+            notifyItemRangeInserted(0, getItemCount());
+            return;
+        }
+        
+        TrackPager oldPager = pager;
+        pendingPager = newPager;
+        diffExecutor.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new SnapshotDiff(oldTracks, newTracks));
+            mainHandler.post(() -> {
+                if (generation != pagerGeneration) {
+                    return; // Superseded; whoever superseded it released or kept the pager
+                }
+                pendingPager = null;
+                // Either pager may have changed while diffing; the result only holds for the snapshots
+                boolean unchanged = pager == oldPager && oldPager.size() == oldTracks.size()
+                        && newPager.size() == newTracks.size();
+                showPager(newPager);
+                if (unchanged) {
+                    result.dispatchUpdatesTo(TrackAdapter.this);
+                } else {
+                    notifyDataSetChanged();
+                }
+            });
+        });
     }
     
+    /**
+     * Show a plain list; it is diffed against the shown list on a background thread.
+     * A track listed more than once is shown once, so every row keeps a unique stable ID.
+     * @param newTracks The tracks to display, or null to clear
+     */
     public void updateTracks(List<Track> newTracks) {
-        this.tracks.clear();
-        if (newTracks != null) {
-            this.tracks.addAll(newTracks);
+        if (pendingPager != null) {
+            pendingPager.release();
+            pendingPager = null;
+        }
+        pagerGeneration++;
+        if (pager != null) {
+            int oldCount = pager.size();
+            pager.release();
+            pager = null;
+            notifyItemRangeRemoved(0, oldCount);
+        }
+        differ.submitList(newTracks != null ? withoutDuplicates(newTracks) : null);
+    }
+    
+    /**
+     * @return The list itself if every track in it is distinct, otherwise a copy with the first of each
+     */
+    private static List<Track> withoutDuplicates(List<Track> tracks) {
+        LongHashSet seen = new LongHashSet(tracks.size());
+        List<Track> distinct = null;
+        for (int i = 0; i < tracks.size(); i++) {
+            Track track = tracks.get(i);
+            if (seen.add(track.getId())) {
+                if (distinct != null) {
+                    distinct.add(track);
+                }
+            } else if (distinct == null) {
+                distinct = new ArrayList<>(tracks.subList(0, i));
+            }
+        }
+        return distinct != null ? distinct : tracks;
+    }
+    
+    private void showPager(TrackPager newPager) {
+        if (pager != null) {
+            pager.release();
+        }
+        pager = newPager;
+        if (newPager != null) {
+            newPager.setListener(pagerListener);
+        }
+    }
+    
+    private static boolean onlyInLibraryChanged(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != TrackPager.PAYLOAD_IN_LIBRARY) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Diff of two fully loaded pagers, using the same rules as the list differ
+     */
+    private static class SnapshotDiff extends DiffUtil.Callback {
+        private final List<Track> oldTracks;
+        private final List<Track> newTracks;
+        
+        SnapshotDiff(List<Track> oldTracks, List<Track> newTracks) {
+            this.oldTracks = oldTracks;
+            this.newTracks = newTracks;
+        }
+        
+        @Override
+        public int getOldListSize() {
+            return oldTracks.size();
+        }
+        
+        @Override
+        public int getNewListSize() {
+            return newTracks.size();
+        }
+        
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return TrackDiffCallback.INSTANCE.areItemsTheSame(oldTracks.get(oldItemPosition), newTracks.get(newItemPosition));
+        }
+        
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return TrackDiffCallback.INSTANCE.areContentsTheSame(oldTracks.get(oldItemPosition), newTracks.get(newItemPosition));
+        }
+        
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return TrackDiffCallback.INSTANCE.getChangePayload(oldTracks.get(oldItemPosition), newTracks.get(newItemPosition));
         }
-        notifyDataSetChanged();
     }
     
     static class TrackViewHolder extends RecyclerView.ViewHolder {
         ImageView ivArtwork;
         TextView tvTitle;
         TextView tvArtist;
+        ImageView ivInLibrary;
         ImageButton btnMore;
+        final int artworkSize;
         
-        TrackViewHolder(@NonNull View itemView) {
+        TrackViewHolder(@NonNull View itemView, int artworkSize) {
             super(itemView);
+            this.artworkSize = artworkSize;
             ivArtwork = itemView.findViewById(R.id.ivArtwork);
             tvTitle = itemView.findViewById(R.id.tvTitle);
             tvArtist = itemView.findViewById(R.id.tvArtist);
+            ivInLibrary = itemView.findViewById(R.id.ivInLibrary);
             btnMore = itemView.findViewById(R.id.btnMore);
         }
         
         void bind(Track track, OnTrackClickListener listener) {
             tvTitle.setText(track.getTitle());
             tvArtist.setText(track.getArtist());
+            bindInLibrary(track);
             
-            // Load artwork with Glide
-            Glide.with(itemView.getContext())
-                    .load(track.getArtworkUrl())
+            // Same request as the preloader's, so a preloaded thumbnail is a memory cache hit
+            TrackArtwork.thumbnail(Glide.with(itemView), track, artworkSize)
+                    .listener(ArtworkStats.forBind())
                     .placeholder(R.color.surface)
                     .error(R.color.surface)
                     .into(ivArtwork);
@@ -95,5 +327,25 @@ public class TrackAdapter extends RecyclerView.Adapter<TrackAdapter.TrackViewHol
                 }
             });
         }
+        
+        /**
+         * Update only the in-library indicator; text and artwork stay as they are
+         */
+        void bindInLibrary(Track track) {
+            ivInLibrary.setVisibility(track.isInLibrary() ? View.VISIBLE : View.GONE);
+        }
+        
+        /**
+         * Show an empty row while its page is being reloaded
+         */
+        void bindPlaceholder() {
+            tvTitle.setText("");
+            tvArtist.setText("");
+            ivInLibrary.setVisibility(View.GONE);
+            Glide.with(itemView).clear(ivArtwork);
+            ivArtwork.setImageResource(R.color.surface);
+            itemView.setOnClickListener(null);
+            btnMore.setOnClickListener(null);
+        }
     }
 }
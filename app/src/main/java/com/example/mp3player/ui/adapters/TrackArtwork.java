@@ -0,0 +1,91 @@
+package com.example.mp3player.ui.adapters;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.example.mp3player.R;
+import com.example.mp3player.models.Track;
+import com.example.mp3player.utils.ArtworkStats;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Artwork requests for track rows.
+ * Rows and the preloader build their requests here so both use the same size
+ * and options: Glide's memory cache key includes them, and a preloaded
+ * thumbnail is only a hit for the row if the two requests match exactly.
+ */
+public final class TrackArtwork {
+    // Rows ahead of the last visible one whose artwork is fetched while scrolling
+    private static final int PRELOAD_ROWS = 12;
+
+    private TrackArtwork() {
+    }
+
+    /**
+     * @return Edge of a row's artwork in pixels, the size thumbnails are decoded at
+     */
+    public static int thumbnailSize(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.track_artwork_size);
+    }
+
+    /**
+     * Request a row thumbnail: the smallest cover that fills the row, decoded straight to its on-screen size.
+     * Cover art has no transparency, so RGB_565 halves the bitmap without visible loss at this size.
+     * @param glide Request manager of the screen showing the row
+     * @param track The track whose cover to load
+     * @param size Edge in pixels, from {@link #thumbnailSize}
+     */
+    static RequestBuilder<Drawable> thumbnail(RequestManager glide, Track track, int size) {
+        return glide.load(track.getArtworkUrl(size)).apply(thumbnailOptions(size));
+    }
+
+    /**
+     * Fetch artwork for rows about to scroll into view, at exactly the size the rows will request
+     * @param recyclerView The list to watch
+     * @param glide Request manager of the screen showing the list
+     * @param tracks Track at an adapter position, or null if not known yet
+     */
+    public static void attachPreloader(RecyclerView recyclerView, RequestManager glide, IntFunction<Track> tracks) {
+        int size = thumbnailSize(recyclerView.getContext());
+        ListPreloader.PreloadModelProvider<Track> provider = new ListPreloader.PreloadModelProvider<Track>() {
+            @NonNull
+            @Override
+            public List<Track> getPreloadItems(int position) {
+                Track track = tracks.apply(position);
+                if (track == null || track.getArtworkUrl(size) == null) {
+                    return Collections.emptyList();
+                }
+                return Collections.singletonList(track);
+            }
+
+            @Nullable
+            @Override
+            public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Track track) {
+                return thumbnail(glide, track, size).listener(ArtworkStats.forPreload());
+            }
+        };
+        recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(glide, provider,
+                new FixedPreloadSizeProvider<>(size, size), PRELOAD_ROWS));
+    }
+
+    private static RequestOptions thumbnailOptions(int size) {
+        return new RequestOptions()
+                .override(size)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.mp3player.ui.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.mp3player.models.Track;
+import com.example.mp3player.utils.TrackPager;
+
+import java.util.Objects;
+
+/**
+ * Compares tracks by Deezer ID, and by the fields a row shows.
+ * A change in the in-library flag alone becomes a payload, so the row only
+ * updates its indicator instead of rebinding text and reloading artwork.
+ */
+class TrackDiffCallback extends DiffUtil.ItemCallback<Track> {
+    static final TrackDiffCallback INSTANCE = new TrackDiffCallback();
+
+    private TrackDiffCallback() {
+    }
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Track oldItem, @NonNull Track newItem) {
+        return oldItem.getId() == newItem.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Track oldItem, @NonNull Track newItem) {
+        return sameRowContent(oldItem, newItem) && oldItem.isInLibrary() == newItem.isInLibrary();
+    }
+
+    @Override
+    public Object getChangePayload(@NonNull Track oldItem, @NonNull Track newItem) {
+        // Called only for items that are the same but whose contents differ
+        return sameRowContent(oldItem, newItem) ? TrackPager.PAYLOAD_IN_LIBRARY : null;
+    }
+
+    private static boolean sameRowContent(Track a, Track b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getArtist(), b.getArtist())
+                && Objects.equals(a.getArtworkSmallUrl(), b.getArtworkSmallUrl())
+                && Objects.equals(a.getArtworkUrl(), b.getArtworkUrl());
+    }
+}
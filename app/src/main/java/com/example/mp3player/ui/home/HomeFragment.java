@@ -13,9 +13,12 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.example.mp3player.R;
 import com.example.mp3player.models.Track;
 import com.example.mp3player.ui.adapters.TrackAdapter;
+import com.example.mp3player.ui.adapters.TrackArtwork;
+import com.example.mp3player.utils.TrackPager;
 import com.example.mp3player.viewmodels.HomeViewModel;
 
 public class HomeFragment extends Fragment {
@@ -64,13 +67,8 @@ public class HomeFragment extends Fragment {
             public void onTrackClick(Track track) {
                 com.example.mp3player.MainActivity activity = (com.example.mp3player.MainActivity) requireActivity();
                 // Play track with full playlist queue
-                java.util.List<Track> tracks = homeViewModel.getRecommendedTracks().getValue();
-                if (tracks != null) {
-                    int index = tracks.indexOf(track);
-                    activity.playTracks(tracks, index);
-                } else {
-                    activity.playTrack(track);
-                }
+                TrackPager pager = homeViewModel.getRecommendedTracks().getValue();
+                activity.playTracks(pager != null ? pager.getResidentTracks() : null, track);
                 
                 // Open PlayerActivity
                 android.content.Intent intent = new android.content.Intent(requireContext(), com.example.mp3player.ui.player.PlayerActivity.class);
@@ -86,6 +84,7 @@ public class HomeFragment extends Fragment {
         
         rvRecommended.setLayoutManager(new LinearLayoutManager(requireContext(), LinearLayoutManager.HORIZONTAL, false));
         rvRecommended.setAdapter(recommendedAdapter);
+        TrackArtwork.attachPreloader(rvRecommended, Glide.with(this), recommendedAdapter::getTrack);
         
         // New releases
         newReleasesAdapter = new TrackAdapter(new TrackAdapter.OnTrackClickListener() {
@@ -93,13 +92,7 @@ public class HomeFragment extends Fragment {
             public void onTrackClick(Track track) {
                 com.example.mp3player.MainActivity activity = (com.example.mp3player.MainActivity) requireActivity();
                 // Play track with full playlist queue
-                java.util.List<Track> tracks = homeViewModel.getNewReleases().getValue();
-                if (tracks != null) {
-                    int index = tracks.indexOf(track);
-                    activity.playTracks(tracks, index);
-                } else {
-                    activity.playTrack(track);
-                }
+                activity.playTracks(homeViewModel.getNewReleases().getValue(), track);
                 
                 // Open PlayerActivity
                 android.content.Intent intent = new android.content.Intent(requireContext(), com.example.mp3player.ui.player.PlayerActivity.class);
@@ -115,12 +108,13 @@ public class HomeFragment extends Fragment {
         
         rvNewReleases.setLayoutManager(new LinearLayoutManager(requireContext(), LinearLayoutManager.HORIZONTAL, false));
         rvNewReleases.setAdapter(newReleasesAdapter);
+        TrackArtwork.attachPreloader(rvNewReleases, Glide.with(this), newReleasesAdapter::getTrack);
     }
     
     private void observeViewModel() {
-        homeViewModel.getRecommendedTracks().observe(getViewLifecycleOwner(), tracks -> {
-            if (tracks != null) {
-                recommendedAdapter.updateTracks(tracks);
+        homeViewModel.getRecommendedTracks().observe(getViewLifecycleOwner(), pager -> {
+            if (pager != null) {
+                recommendedAdapter.setPager(pager);
             }
         });
         
@@ -15,9 +15,13 @@ import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.example.mp3player.R;
 import com.example.mp3player.models.Track;
 import com.example.mp3player.ui.adapters.TrackAdapter;
+import com.example.mp3player.ui.adapters.TrackArtwork;
+import com.example.mp3player.utils.FrameTimeMonitor;
+import com.example.mp3player.utils.TrackPager;
 import com.example.mp3player.viewmodels.LibraryViewModel;
 
 public class LibraryFragment extends Fragment {
@@ -41,7 +45,7 @@ public class LibraryFragment extends Fragment {
         setupRecyclerView();
         observeViewModel();
         
-        libraryViewModel.loadLibrary();
+        // The first page is loaded in onResume
         
         return view;
     }
@@ -51,14 +55,9 @@ public class LibraryFragment extends Fragment {
             @Override
             public void onTrackClick(Track track) {
                 com.example.mp3player.MainActivity activity = (com.example.mp3player.MainActivity) requireActivity();
-                // Play track with full library as queue
-                java.util.List<Track> tracks = libraryViewModel.getLibraryTracks().getValue();
-                if (tracks != null) {
-                    int index = tracks.indexOf(track);
-                    activity.playTracks(tracks, index);
-                } else {
-                    activity.playTrack(track);
-                }
+                // Play track with the loaded part of the library as queue
+                TrackPager pager = libraryViewModel.getLibraryTracks().getValue();
+                activity.playTracks(pager != null ? pager.getResidentTracks() : null, track);
                 
                 // Open PlayerActivity
                 android.content.Intent intent = new android.content.Intent(requireContext(), com.example.mp3player.ui.player.PlayerActivity.class);
@@ -75,6 +74,7 @@ public class LibraryFragment extends Fragment {
         
         rvLibraryTracks.setLayoutManager(new LinearLayoutManager(requireContext()));
         rvLibraryTracks.setAdapter(trackAdapter);
+        TrackArtwork.attachPreloader(rvLibraryTracks, Glide.with(this), trackAdapter::getTrack);
         
         // Swipe to delete
         ItemTouchHelper itemTouchHelper = new ItemTouchHelper(new ItemTouchHelper.SimpleCallback(0, ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT) {
@@ -86,7 +86,13 @@ public class LibraryFragment extends Fragment {
             @Override
             public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
                 int position = viewHolder.getAdapterPosition();
-                Track track = libraryViewModel.getLibraryTracks().getValue().get(position);
+                // Ask the adapter: while a refresh is being diffed it still shows the previous list
+                Track track = position != RecyclerView.NO_POSITION ? trackAdapter.getTrack(position) : null;
+                if (track == null) {
+                    // Row was still a placeholder; put it back
+                    trackAdapter.notifyItemChanged(position);
+                    return;
+                }
                 
                 libraryViewModel.removeFromLibrary(track.getId());
                 Toast.makeText(requireContext(), "Removed from library", Toast.LENGTH_SHORT).show();
@@ -97,9 +103,12 @@ public class LibraryFragment extends Fragment {
     }
     
     private void observeViewModel() {
-        libraryViewModel.getLibraryTracks().observe(getViewLifecycleOwner(), tracks -> {
-            if (tracks != null && !tracks.isEmpty()) {
-                trackAdapter.updateTracks(tracks);
+        libraryViewModel.getLibraryTracks().observe(getViewLifecycleOwner(), pager -> {
+            if (pager != null) {
+                FrameTimeMonitor.measure(requireActivity().getWindow(), "library refresh");
+                trackAdapter.setPager(pager);
+            }
+            if (pager != null && pager.size() > 0) {
                 rvLibraryTracks.setVisibility(View.VISIBLE);
                 tvEmptyState.setVisibility(View.GONE);
             } else {
@@ -80,10 +80,11 @@ public class MiniPlayerView extends ConstraintLayout {
             tvMiniTrackTitle.setText(track.getTitle());
             tvMiniArtist.setText(track.getArtist());
             
-            // Load album artwork
-            if (track.getArtworkUrl() != null && !track.getArtworkUrl().isEmpty()) {
+            // Load album artwork; the view has a fixed size, so the small cover usually fits
+            String artworkUrl = track.getArtworkUrl(ivMiniAlbumArt.getLayoutParams().width);
+            if (artworkUrl != null) {
                 Glide.with(getContext())
-                        .load(track.getArtworkUrl())
+                        .load(artworkUrl)
                         .placeholder(R.drawable.placeholder_album)
                         .error(R.drawable.placeholder_album)
                         .into(ivMiniAlbumArt);
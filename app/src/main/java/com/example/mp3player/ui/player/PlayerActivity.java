@@ -5,9 +5,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.IBinder;
-import android.os.Looper;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.SeekBar;
@@ -19,6 +17,7 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.bumptech.glide.Glide;
 import com.example.mp3player.R;
+import com.example.mp3player.database.DatabaseExecutor;
 import com.example.mp3player.models.Track;
 import com.example.mp3player.models.User;
 import com.example.mp3player.repositories.MusicRepository;
@@ -49,8 +48,6 @@ public class PlayerActivity extends AppCompatActivity {
     
     private MusicService musicService;
     private boolean serviceBound = false;
-    private Handler progressHandler;
-    private Runnable progressRunnable;
     
     private Track currentTrack;
     private boolean isInLibrary = false;
@@ -63,6 +60,8 @@ public class PlayerActivity extends AppCompatActivity {
             serviceBound = true;
             
             playerViewModel.setMusicService(musicService);
+            // The service pushes progress while this screen is visible and audio is playing
+            musicService.observeProgress(PlayerActivity.this);
             
             // If track was passed, play it
             if (currentTrack != null) {
@@ -113,9 +112,6 @@ public class PlayerActivity extends AppCompatActivity {
         // Bind to MusicService
         Intent intent = new Intent(this, MusicService.class);
         bindService(intent, serviceConnection, Context.BIND_AUTO_CREATE);
-        
-        // Setup progress updater
-        setupProgressUpdater();
     }
     
     private void initViews() {
@@ -157,19 +153,12 @@ public class PlayerActivity extends AppCompatActivity {
             
             @Override
             public void onStartTrackingTouch(SeekBar seekBar) {
-                // Stop progress updates while user is dragging
-                if (progressHandler != null && progressRunnable != null) {
-                    progressHandler.removeCallbacks(progressRunnable);
-                }
+                // Progress updates are ignored while the seek bar is pressed
             }
             
             @Override
             public void onStopTrackingTouch(SeekBar seekBar) {
                 playerViewModel.seekTo(seekBar.getProgress());
-                // Resume progress updates
-                if (progressHandler != null && progressRunnable != null) {
-                    progressHandler.post(progressRunnable);
-                }
             }
         });
     }
@@ -211,8 +200,10 @@ public class PlayerActivity extends AppCompatActivity {
             btnNext.setEnabled(playerViewModel.hasNext());
             btnNext.setAlpha(playerViewModel.hasNext() ? 1.0f : 0.5f);
             
-            btnPrevious.setEnabled(playerViewModel.hasPrevious() || musicService.getCurrentPosition() > 3000);
-            btnPrevious.setAlpha((playerViewModel.hasPrevious() || musicService.getCurrentPosition() > 3000) ? 1.0f : 0.5f);
+            Integer position = playerViewModel.getCurrentPosition().getValue();
+            boolean canGoBack = playerViewModel.hasPrevious() || (position != null && position > 3000);
+            btnPrevious.setEnabled(canGoBack);
+            btnPrevious.setAlpha(canGoBack ? 1.0f : 0.5f);
         }
     }
     
@@ -221,10 +212,14 @@ public class PlayerActivity extends AppCompatActivity {
         tvArtist.setText(track.getArtist());
         tvAlbum.setText(track.getAlbum() != null ? track.getAlbum() : "");
         
-        // Load album artwork
-        if (track.getArtworkUrl() != null && !track.getArtworkUrl().isEmpty()) {
+        // Load album artwork; before the first layout the screen width bounds the view
+        int artworkSize = ivAlbumArt.getWidth() > 0
+                ? Math.max(ivAlbumArt.getWidth(), ivAlbumArt.getHeight())
+                : getResources().getDisplayMetrics().widthPixels;
+        String artworkUrl = track.getArtworkUrl(artworkSize);
+        if (artworkUrl != null) {
             Glide.with(this)
-                    .load(track.getArtworkUrl())
+                    .load(artworkUrl)
                     .placeholder(R.drawable.placeholder_album)
                     .error(R.drawable.placeholder_album)
                     .into(ivAlbumArt);
@@ -245,8 +240,18 @@ public class PlayerActivity extends AppCompatActivity {
         if (currentTrack != null) {
             User user = userRepository.getCurrentUser();
             if (user != null) {
-                isInLibrary = musicRepository.isInLibrary(user.getId(), currentTrack.getId());
-                updateLibraryButton();
+                Track track = currentTrack;
+                DatabaseExecutor.execute(() -> {
+                    boolean inLibrary = musicRepository.isInLibrary(user.getId(), track.getId());
+                    runOnUiThread(() -> {
+                        // Drop the answer if the player moved on to another track meanwhile
+                        if (isDestroyed() || currentTrack == null || currentTrack.getId() != track.getId()) {
+                            return;
+                        }
+                        isInLibrary = inLibrary;
+                        updateLibraryButton();
+                    });
+                });
             }
         }
     }
@@ -268,45 +273,54 @@ public class PlayerActivity extends AppCompatActivity {
             return;
         }
         
-        if (isInLibrary) {
-            // Remove from library
-            boolean success = musicRepository.removeFromLibrary(user.getId(), currentTrack.getId());
-            if (success) {
-                isInLibrary = false;
-                updateLibraryButton();
-                Toast.makeText(this, "Removed from library", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, "Failed to remove from library", Toast.LENGTH_SHORT).show();
-            }
-        } else {
-            // Add to library
-            int result = musicRepository.addToLibrary(user.getId(), currentTrack);
-            if (result == 1) {
-                isInLibrary = true;
-                updateLibraryButton();
-                Toast.makeText(this, "Added to library", Toast.LENGTH_SHORT).show();
-            } else if (result == 0) {
-                isInLibrary = true;
-                updateLibraryButton();
-                Toast.makeText(this, "Track already in library", Toast.LENGTH_SHORT).show();
+        Track track = currentTrack;
+        boolean remove = isInLibrary;
+        // Ignore further taps until this write has finished
+        btnAddToLibrary.setEnabled(false);
+        
+        DatabaseExecutor.executeWrite(() -> {
+            if (remove) {
+                // Remove from library
+                boolean success = musicRepository.removeFromLibrary(user.getId(), track.getId());
+                runOnUiThread(() -> {
+                    if (success) {
+                        onLibraryStatusChanged(track, false, "Removed from library");
+                    } else {
+                        onLibraryStatusChanged(track, true, "Failed to remove from library");
+                    }
+                });
             } else {
-                Toast.makeText(this, "Failed to add to library", Toast.LENGTH_SHORT).show();
+                // Add to library
+                int result = musicRepository.addToLibrary(user.getId(), track);
+                runOnUiThread(() -> {
+                    if (result == 1) {
+                        onLibraryStatusChanged(track, true, "Added to library");
+                    } else if (result == 0) {
+                        onLibraryStatusChanged(track, true, "Track already in library");
+                    } else {
+                        onLibraryStatusChanged(track, false, "Failed to add to library");
+                    }
+                });
             }
-        }
+        });
     }
     
-    private void setupProgressUpdater() {
-        progressHandler = new Handler(Looper.getMainLooper());
-        progressRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (serviceBound && musicService != null && musicService.isPlaying()) {
-                    playerViewModel.updateProgress();
-                }
-                progressHandler.postDelayed(this, 1000); // Update every second
-            }
-        };
-        progressHandler.post(progressRunnable);
+    /**
+     * Apply the outcome of a library write on the main thread
+     * @param track The track that was written
+     * @param inLibrary Whether the track is now in the library
+     * @param message Message to show the user
+     */
+    private void onLibraryStatusChanged(Track track, boolean inLibrary, String message) {
+        if (isDestroyed()) {
+            return;
+        }
+        btnAddToLibrary.setEnabled(true);
+        if (currentTrack != null && currentTrack.getId() == track.getId()) {
+            isInLibrary = inLibrary;
+            updateLibraryButton();
+        }
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
     
     private String formatTime(int milliseconds) {
@@ -320,11 +334,6 @@ public class PlayerActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         
-        // Stop progress updates
-        if (progressHandler != null && progressRunnable != null) {
-            progressHandler.removeCallbacks(progressRunnable);
-        }
-        
         // Unbind service
         if (serviceBound) {
             unbindService(serviceConnection);
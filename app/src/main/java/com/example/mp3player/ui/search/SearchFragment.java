@@ -15,12 +15,17 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.example.mp3player.R;
 import com.example.mp3player.models.Track;
 import com.example.mp3player.ui.adapters.TrackAdapter;
+import com.example.mp3player.ui.adapters.TrackArtwork;
+import com.example.mp3player.utils.FrameTimeMonitor;
+import com.example.mp3player.utils.TrackPager;
 import com.example.mp3player.viewmodels.SearchViewModel;
 
 public class SearchFragment extends Fragment {
@@ -30,6 +35,7 @@ public class SearchFragment extends Fragment {
     private ProgressBar progressBar;
     private TextView tvEmptyState;
     private TrackAdapter trackAdapter;
+    private TrackAdapter localTrackAdapter;
     private Handler searchHandler;
     private Runnable searchRunnable;
     
@@ -80,20 +86,9 @@ public class SearchFragment extends Fragment {
         trackAdapter = new TrackAdapter(new TrackAdapter.OnTrackClickListener() {
             @Override
             public void onTrackClick(Track track) {
-                com.example.mp3player.MainActivity activity = (com.example.mp3player.MainActivity) requireActivity();
                 // Play track with full search results as queue
-                java.util.List<Track> tracks = searchViewModel.getSearchResults().getValue();
-                if (tracks != null) {
-                    int index = tracks.indexOf(track);
-                    activity.playTracks(tracks, index);
-                } else {
-                    activity.playTrack(track);
-                }
-                
-                // Open PlayerActivity
-                android.content.Intent intent = new android.content.Intent(requireContext(), com.example.mp3player.ui.player.PlayerActivity.class);
-                intent.putExtra(com.example.mp3player.ui.player.PlayerActivity.EXTRA_TRACK, track);
-                startActivity(intent);
+                TrackPager pager = searchViewModel.getSearchResults().getValue();
+                playTrack(track, pager != null ? pager.getResidentTracks() : null);
             }
             
             @Override
@@ -102,8 +97,42 @@ public class SearchFragment extends Fragment {
             }
         });
         
+        localTrackAdapter = new TrackAdapter(new TrackAdapter.OnTrackClickListener() {
+            @Override
+            public void onTrackClick(Track track) {
+                // Play track with the library matches as queue
+                playTrack(track, searchViewModel.getLocalResults().getValue());
+            }
+            
+            @Override
+            public void onMoreClick(Track track) {
+                Toast.makeText(requireContext(), "Already in your library", Toast.LENGTH_SHORT).show();
+            }
+        });
+        
+        // Library matches first, network results below them
         rvSearchResults.setLayoutManager(new LinearLayoutManager(requireContext()));
-        rvSearchResults.setAdapter(trackAdapter);
+        // A track can be both a library match and a network result, so keep the two ID spaces apart
+        ConcatAdapter.Config config = new ConcatAdapter.Config.Builder()
+                .setStableIdMode(ConcatAdapter.Config.StableIdMode.ISOLATED_STABLE_IDS)
+                .build();
+        rvSearchResults.setAdapter(new ConcatAdapter(config, localTrackAdapter, trackAdapter));
+        TrackArtwork.attachPreloader(rvSearchResults, Glide.with(this), position -> {
+            int localCount = localTrackAdapter.getItemCount();
+            return position < localCount
+                    ? localTrackAdapter.getTrack(position)
+                    : trackAdapter.getTrack(position - localCount);
+        });
+    }
+    
+    private void playTrack(Track track, java.util.List<Track> queue) {
+        com.example.mp3player.MainActivity activity = (com.example.mp3player.MainActivity) requireActivity();
+        activity.playTracks(queue, track);
+        
+        // Open PlayerActivity
+        android.content.Intent intent = new android.content.Intent(requireContext(), com.example.mp3player.ui.player.PlayerActivity.class);
+        intent.putExtra(com.example.mp3player.ui.player.PlayerActivity.EXTRA_TRACK, track);
+        startActivity(intent);
     }
     
     private void showAddToLibraryDialog(Track track) {
@@ -128,6 +157,8 @@ public class SearchFragment extends Fragment {
     
     private void performSearch(String query) {
         if (query == null || query.trim().isEmpty()) {
+            // Drop any request still running for the text that was just cleared
+            searchViewModel.clearResults();
             tvEmptyState.setVisibility(View.VISIBLE);
             tvEmptyState.setText("Search for music");
             rvSearchResults.setVisibility(View.GONE);
@@ -138,16 +169,17 @@ public class SearchFragment extends Fragment {
     }
     
     private void observeViewModel() {
-        searchViewModel.getSearchResults().observe(getViewLifecycleOwner(), tracks -> {
-            if (tracks != null && !tracks.isEmpty()) {
-                trackAdapter.updateTracks(tracks);
-                rvSearchResults.setVisibility(View.VISIBLE);
-                tvEmptyState.setVisibility(View.GONE);
-            } else if (tracks != null) {
-                rvSearchResults.setVisibility(View.GONE);
-                tvEmptyState.setVisibility(View.VISIBLE);
-                tvEmptyState.setText("No results found");
-            }
+        searchViewModel.getSearchResults().observe(getViewLifecycleOwner(), pager -> {
+            // Also swap in empty or cleared results so stale rows never sit under the library matches
+            FrameTimeMonitor.measure(requireActivity().getWindow(), "search results");
+            trackAdapter.setPager(pager);
+            updateResultsVisibility();
+        });
+        
+        searchViewModel.getLocalResults().observe(getViewLifecycleOwner(), tracks -> {
+            FrameTimeMonitor.measure(requireActivity().getWindow(), "library matches");
+            localTrackAdapter.updateTracks(tracks);
+            updateResultsVisibility();
         });
         
         searchViewModel.getIsLoading().observe(getViewLifecycleOwner(), isLoading -> {
@@ -161,6 +193,26 @@ public class SearchFragment extends Fragment {
         });
     }
     
+    /**
+     * Show the list while either library or network results are available;
+     * "No results" only once the network has answered with nothing and the library had nothing either
+     */
+    private void updateResultsVisibility() {
+        TrackPager pager = searchViewModel.getSearchResults().getValue();
+        java.util.List<Track> local = searchViewModel.getLocalResults().getValue();
+        boolean hasRemote = pager != null && pager.size() > 0;
+        boolean hasLocal = local != null && !local.isEmpty();
+        
+        if (hasRemote || hasLocal) {
+            rvSearchResults.setVisibility(View.VISIBLE);
+            tvEmptyState.setVisibility(View.GONE);
+        } else if (pager != null) {
+            rvSearchResults.setVisibility(View.GONE);
+            tvEmptyState.setVisibility(View.VISIBLE);
+            tvEmptyState.setText("No results found");
+        }
+    }
+    
     @Override
     public void onDestroyView() {
         super.onDestroyView();
@@ -0,0 +1,40 @@
+package com.example.mp3player.utils;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+import com.example.mp3player.R;
+
+/**
+ * Sizes Glide's memory cache in row thumbnails rather than in screens.
+ * Track rows are small and many, so the cache holds enough decoded thumbnails
+ * for a few screens of every list plus the rows the preloader fetches ahead,
+ * and never more than Glide's own limit for the device.
+ */
+@GlideModule
+public final class ArtworkGlideModule extends AppGlideModule {
+    private static final int MEMORY_CACHE_THUMBNAILS = 400;
+    // Headroom for the one full-size cover shown by the player
+    private static final long FULL_SIZE_COVER_BYTES = 1000L * 1000L * 4L;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        int size = context.getResources().getDimensionPixelSize(R.dimen.track_artwork_size);
+        long thumbnailBytes = (long) size * size * 2; // RGB_565, see TrackArtwork
+        long wanted = MEMORY_CACHE_THUMBNAILS * thumbnailBytes + FULL_SIZE_COVER_BYTES;
+
+        long deviceLimit = new MemorySizeCalculator.Builder(context).build().getMemoryCacheSize();
+        builder.setMemoryCache(new LruResourceCache(Math.min(wanted, deviceLimit)));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
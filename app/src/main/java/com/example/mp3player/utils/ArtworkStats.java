@@ -0,0 +1,150 @@
+package com.example.mp3player.utils;
+
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for artwork shown in track rows: how often a bound row found its
+ * thumbnail in the memory cache, and how long loads that missed it took.
+ * A load from Glide's disk cache is a decode of the stored thumbnail, so its
+ * time is the decode time; a remote load also includes the download.
+ * A summary is logged every {@link #LOG_EVERY} bound rows when enabled with
+ * {@code adb shell setprop log.tag.ArtworkStats DEBUG}.
+ */
+public final class ArtworkStats {
+    private static final String TAG = "ArtworkStats";
+    private static final int LOG_EVERY = 100;
+
+    private static final AtomicLong binds = new AtomicLong();
+    private static final AtomicLong memoryHits = new AtomicLong();
+    private static final AtomicLong diskLoads = new AtomicLong();
+    private static final AtomicLong diskLoadNanos = new AtomicLong();
+    private static final AtomicLong remoteLoads = new AtomicLong();
+    private static final AtomicLong remoteLoadNanos = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+
+    private ArtworkStats() {
+    }
+
+    /**
+     * Listener for a row's artwork request; counts the bind and where the image came from
+     */
+    public static RequestListener<Drawable> forBind() {
+        return new TimingListener(true);
+    }
+
+    /**
+     * Listener for a preload request; only times the load, a preload is not a bind
+     */
+    public static RequestListener<Drawable> forPreload() {
+        return new TimingListener(false);
+    }
+
+    /**
+     * @return Fraction of bound rows whose artwork was already in the memory cache
+     */
+    public static double getMemoryHitRate() {
+        long total = binds.get();
+        return total > 0 ? (double) memoryHits.get() / total : 0;
+    }
+
+    /**
+     * @return Average time of loads decoded from the disk cache, in milliseconds
+     */
+    public static double getAverageDecodeMillis() {
+        return averageMillis(diskLoadNanos.get(), diskLoads.get());
+    }
+
+    /**
+     * @return Average time of loads fetched from the network, in milliseconds
+     */
+    public static double getAverageRemoteLoadMillis() {
+        return averageMillis(remoteLoadNanos.get(), remoteLoads.get());
+    }
+
+    public static void reset() {
+        binds.set(0);
+        memoryHits.set(0);
+        diskLoads.set(0);
+        diskLoadNanos.set(0);
+        remoteLoads.set(0);
+        remoteLoadNanos.set(0);
+        failures.set(0);
+    }
+
+    private static void record(boolean bind, DataSource dataSource, long nanos) {
+        switch (dataSource) {
+            case MEMORY_CACHE:
+                if (bind) {
+                    memoryHits.incrementAndGet();
+                }
+                break;
+            case RESOURCE_DISK_CACHE:
+            case DATA_DISK_CACHE:
+            case LOCAL:
+                diskLoads.incrementAndGet();
+                diskLoadNanos.addAndGet(nanos);
+                break;
+            default:
+                remoteLoads.incrementAndGet();
+                remoteLoadNanos.addAndGet(nanos);
+                break;
+        }
+    }
+
+    private static void countBind() {
+        if (binds.incrementAndGet() % LOG_EVERY == 0 && Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, String.format(Locale.ROOT,
+                    "%d binds, memory hit rate %.0f%%, %d decodes avg %.1f ms, %d downloads avg %.1f ms, %d failed",
+                    binds.get(), getMemoryHitRate() * 100,
+                    diskLoads.get(), getAverageDecodeMillis(),
+                    remoteLoads.get(), getAverageRemoteLoadMillis(),
+                    failures.get()));
+        }
+    }
+
+    private static double averageMillis(long nanos, long count) {
+        return count > 0 ? nanos / 1_000_000.0 / count : 0;
+    }
+
+    private static class TimingListener implements RequestListener<Drawable> {
+        private final boolean bind;
+        private final long startNanos = SystemClock.elapsedRealtimeNanos();
+
+        TimingListener(boolean bind) {
+            this.bind = bind;
+        }
+
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                    @NonNull Target<Drawable> target, boolean isFirstResource) {
+            failures.incrementAndGet();
+            if (bind) {
+                countBind();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target,
+                                       @NonNull DataSource dataSource, boolean isFirstResource) {
+            record(bind, dataSource, SystemClock.elapsedRealtimeNanos() - startNanos);
+            if (bind) {
+                countBind();
+            }
+            return false;
+        }
+    }
+}
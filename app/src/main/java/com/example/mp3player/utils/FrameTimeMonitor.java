@@ -0,0 +1,79 @@
+package com.example.mp3player.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records how long frames take for a short while after a list refresh and logs
+ * a summary: frame count, median, 90th percentile, worst frame and the number
+ * of frames over the display's frame budget.
+ * Off unless enabled with {@code adb shell setprop log.tag.FrameTime DEBUG}.
+ */
+public final class FrameTimeMonitor {
+    private static final String TAG = "FrameTime";
+    private static final long MEASURE_WINDOW_MS = 2000;
+    private static final int MAX_FRAMES = 512;
+
+    private FrameTimeMonitor() {
+    }
+
+    /**
+     * Measure the frames of a window for the next two seconds
+     * @param window The window showing the refreshed list
+     * @param label Name of what is being refreshed, for the log line
+     */
+    public static void measure(Window window, String label) {
+        if (window == null || !Log.isLoggable(TAG, Log.DEBUG)) {
+            return;
+        }
+
+        float refreshRate = window.getWindowManager().getDefaultDisplay().getRefreshRate();
+        long budgetNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+        long[] durations = new long[MAX_FRAMES];
+        int[] count = new int[1];
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        Window.OnFrameMetricsAvailableListener listener = (w, frameMetrics, dropCount) -> {
+            if (count[0] < MAX_FRAMES) {
+                durations[count[0]++] = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+            }
+        };
+        window.addOnFrameMetricsAvailableListener(listener, handler);
+
+        handler.postDelayed(() -> {
+            window.removeOnFrameMetricsAvailableListener(listener);
+            log(label, Arrays.copyOf(durations, count[0]), budgetNanos);
+        }, MEASURE_WINDOW_MS);
+    }
+
+    private static void log(String label, long[] durations, long budgetNanos) {
+        if (durations.length == 0) {
+            Log.d(TAG, label + ": no frames drawn");
+            return;
+        }
+
+        Arrays.sort(durations);
+        int janky = 0;
+        for (long duration : durations) {
+            if (duration > budgetNanos) {
+                janky++;
+            }
+        }
+        Log.d(TAG, String.format(Locale.ROOT, "%s: %d frames, p50 %.1f ms, p90 %.1f ms, max %.1f ms, %d over %.1f ms",
+                label, durations.length,
+                millis(durations[durations.length / 2]),
+                millis(durations[(int) (durations.length * 0.9)]),
+                millis(durations[durations.length - 1]),
+                janky, millis(budgetNanos)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
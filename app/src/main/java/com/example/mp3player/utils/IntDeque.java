@@ -0,0 +1,116 @@
+package com.example.mp3player.utils;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Double-ended queue of primitive ints in a circular array.
+ * Avoids the boxing of ArrayDeque&lt;Integer&gt;; adding and removing at either end
+ * is amortized O(1). Not thread-safe.
+ */
+public class IntDeque {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] elements;
+    // Index of the first element; the rest follow it, wrapping around the array
+    private int head;
+    private int size;
+
+    public IntDeque() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Number of elements the deque should hold without growing
+     */
+    public IntDeque(int expectedSize) {
+        elements = new int[Math.max(MIN_CAPACITY, expectedSize)];
+    }
+
+    public void addFirst(int value) {
+        ensureCapacity(size + 1);
+        head = (head - 1 + elements.length) % elements.length;
+        elements[head] = value;
+        size++;
+    }
+
+    public void addLast(int value) {
+        ensureCapacity(size + 1);
+        elements[(head + size) % elements.length] = value;
+        size++;
+    }
+
+    /**
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int pollFirst() {
+        int value = peekFirst();
+        head = (head + 1) % elements.length;
+        size--;
+        return value;
+    }
+
+    /**
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int pollLast() {
+        int value = peekLast();
+        size--;
+        return value;
+    }
+
+    /**
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int peekFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[head];
+    }
+
+    /**
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int peekLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[(head + size - 1) % elements.length];
+    }
+
+    /**
+     * @param index Position from the first element
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return elements[(head + index) % elements.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= elements.length) {
+            return;
+        }
+        int[] grown = new int[Math.max(capacity, elements.length * 2)];
+        // Unwrap so the first element lands at index 0
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, firstPart);
+        System.arraycopy(elements, 0, grown, firstPart, size - firstPart);
+        elements = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.mp3player.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of primitive longs.
+ * Avoids the boxing and per-entry node of HashSet&lt;Long&gt;, so a set of tens of
+ * thousands of track IDs is one flat array and a lookup is a few array reads.
+ * Not thread-safe.
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int MIN_CAPACITY = 16;
+
+    // 0 marks a free slot, so the key 0 itself is tracked separately
+    private long[] slots;
+    private boolean containsEmptyKey;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Number of keys the set should hold without growing
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return true if the key was not already present
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+
+        int slot = indexOf(key);
+        if (slots[slot] == key) {
+            return false;
+        }
+        slots[slot] = key;
+        if (++size > resizeThreshold) {
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmptyKey;
+        }
+        return slots[indexOf(key)] == key;
+    }
+
+    /**
+     * @return true if the key was present
+     */
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            if (!containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = false;
+            size--;
+            return true;
+        }
+
+        int hole = indexOf(key);
+        if (slots[hole] != key) {
+            return false;
+        }
+        slots[hole] = EMPTY;
+        size--;
+
+        // Backward-shift deletion: pull later entries of the probe run into the hole
+        // so lookups never stop early at it; no tombstones needed
+        int next = (hole + 1) & mask;
+        while (slots[next] != EMPTY) {
+            int home = mix(slots[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                slots[next] = EMPTY;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        containsEmptyKey = false;
+        size = 0;
+    }
+
+    /**
+     * Find the slot holding the key, or the free slot where it would go
+     */
+    private int indexOf(long key) {
+        int slot = mix(key) & mask;
+        while (slots[slot] != EMPTY && slots[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = slots;
+        allocate(newCapacity);
+        for (long key : old) {
+            if (key != EMPTY) {
+                slots[indexOf(key)] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        int capacity = Integer.highestOneBit(Math.max(needed, MIN_CAPACITY) - 1) << 1;
+        return Math.max(capacity, MIN_CAPACITY);
+    }
+
+    /**
+     * Spread sequential IDs across the table (Fibonacci hashing)
+     */
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.mp3player.utils;
+
+import com.example.mp3player.models.Track;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU of search results keyed by normalized query.
+ * Besides exact lookups it can answer a longer query ("beatl") by filtering the
+ * cached results of a shorter prefix ("beat"), so search-as-you-type shows
+ * something instantly while the network request is still running.
+ * Entries expire after a max age, normally the HTTP cache lifetime of search
+ * responses, so results are never served longer than the network layer would.
+ * Tracks are copied in and out, so rows a caller marks or shows never share
+ * state with the cache; in-library flags of returned tracks must be re-checked.
+ */
+public class SearchResultCache {
+    /**
+     * The first page of results for a query, with what is needed to page on from it
+     */
+    public static final class Entry {
+        private final List<Track> tracks;
+        private final Object nextCursor;
+        private final long storedAtMillis;
+
+        Entry(List<Track> tracks, Object nextCursor, long storedAtMillis) {
+            this.tracks = tracks;
+            this.nextCursor = nextCursor;
+            this.storedAtMillis = storedAtMillis;
+        }
+
+        /**
+         * @return Copies of the results, which the caller may change
+         */
+        public List<Track> getTracks() {
+            return copyOf(tracks);
+        }
+
+        /**
+         * @return Cursor of the page after these results, or null if they were the last
+         */
+        public Object getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    private final int maxEntries;
+    private final LongSupplier maxAgeMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long exactHits;
+    private long prefixHits;
+    private long misses;
+
+    /**
+     * Create a cache whose entries never expire
+     */
+    public SearchResultCache(int maxEntries) {
+        this(maxEntries, () -> Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxEntries Number of queries to keep
+     * @param maxAgeMillis How long an entry may be served; read on every lookup, so it follows a tunable policy
+     */
+    public SearchResultCache(int maxEntries, LongSupplier maxAgeMillis) {
+        this(maxEntries, maxAgeMillis, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    SearchResultCache(int maxEntries, LongSupplier maxAgeMillis, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+        // Access order so get() refreshes an entry's position
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SearchResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Normalize a query so equivalent inputs share one cache key
+     * @param query The raw query text
+     * @return Trimmed, lower-cased query with single spaces, or an empty string
+     */
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Store the network results for a query
+     * @param query The query (normalized or not)
+     * @param tracks The results
+     * @param nextCursor Cursor of the page after them, as the server reported it; null if they were the last
+     */
+    public synchronized void put(String query, List<Track> tracks, Object nextCursor) {
+        String key = normalize(query);
+        if (key.isEmpty() || tracks == null) {
+            return;
+        }
+        entries.put(key, new Entry(copyOf(tracks), nextCursor, clock.getAsLong()));
+    }
+
+    /**
+     * Look up the exact results for a query
+     * @param query The query (normalized or not)
+     * @return The cached entry, or null on a miss or if it has expired
+     */
+    public synchronized Entry get(String query) {
+        Entry cached = getFresh(normalize(query));
+        if (cached != null) {
+            exactHits++;
+        }
+        return cached;
+    }
+
+    /**
+     * Build provisional results for a query from the longest cached prefix of it.
+     * Only call this after {@link #get(String)} missed.
+     * @param query The query (normalized or not)
+     * @return Copies of the prefix results filtered to the query, or null if no prefix is cached
+     */
+    public synchronized List<Track> findByPrefix(String query) {
+        String key = normalize(query);
+
+        for (int end = key.length() - 1; end > 0; end--) {
+            Entry cached = getFresh(key.substring(0, end));
+            if (cached != null) {
+                prefixHits++;
+                return filter(cached.tracks, key);
+            }
+        }
+
+        misses++;
+        return null;
+    }
+
+    /**
+     * @return The entry for a key, or null if there is none or it has expired, in which case it is dropped
+     */
+    private Entry getFresh(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && clock.getAsLong() - entry.storedAtMillis >= maxAgeMillis.getAsLong()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private static List<Track> filter(List<Track> tracks, String normalizedQuery) {
+        List<Track> matches = new ArrayList<>();
+        for (Track track : tracks) {
+            if (contains(track.getTitle(), normalizedQuery)
+                    || contains(track.getArtist(), normalizedQuery)
+                    || contains(track.getAlbum(), normalizedQuery)) {
+                matches.add(new Track(track));
+            }
+        }
+        return matches;
+    }
+
+    private static List<Track> copyOf(List<Track> tracks) {
+        List<Track> copies = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            copies.add(new Track(track));
+        }
+        return copies;
+    }
+
+    private static boolean contains(String field, String normalizedQuery) {
+        return field != null && field.toLowerCase(Locale.ROOT).contains(normalizedQuery);
+    }
+
+    public synchronized long getExactHitCount() {
+        return exactHits;
+    }
+
+    public synchronized long getPrefixHitCount() {
+        return prefixHits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return Fraction of lookups answered from the cache, exactly or by prefix
+     */
+    public synchronized double getHitRatio() {
+        long total = exactHits + prefixHits + misses;
+        return total == 0 ? 0 : (double) (exactHits + prefixHits) / total;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
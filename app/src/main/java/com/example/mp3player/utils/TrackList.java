@@ -0,0 +1,150 @@
+package com.example.mp3player.utils;
+
+import com.example.mp3player.models.Track;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of tracks that can be shared without copying.
+ * A screen builds one when its data changes and hands the same instance to the
+ * player, so starting playback neither copies the list nor scans it: the position
+ * of a track is found through an index of track IDs, built on the first lookup.
+ * Safe to share between threads.
+ */
+public final class TrackList extends AbstractList<Track> implements RandomAccess {
+    public static final TrackList EMPTY = new TrackList(new Track[0]);
+
+    private final Track[] tracks;
+    // Built on the first lookup; racing threads may each build one, which is harmless
+    private volatile IdIndex idIndex;
+
+    private TrackList(Track[] tracks) {
+        this.tracks = tracks;
+    }
+
+    /**
+     * @param tracks The tracks to hold
+     * @return The same instance if it is already a TrackList, otherwise a copy
+     */
+    public static TrackList copyOf(Collection<? extends Track> tracks) {
+        if (tracks instanceof TrackList) {
+            return (TrackList) tracks;
+        }
+        if (tracks.isEmpty()) {
+            return EMPTY;
+        }
+        return new TrackList(tracks.toArray(new Track[0]));
+    }
+
+    /**
+     * @param first The tracks to start with
+     * @param more The tracks that follow them
+     * @return A list of both, one copy of each
+     */
+    public static TrackList concat(List<? extends Track> first, List<? extends Track> more) {
+        if (more.isEmpty()) {
+            return copyOf(first);
+        }
+        Track[] tracks = new Track[first.size() + more.size()];
+        int i = 0;
+        for (Track track : first) {
+            tracks[i++] = track;
+        }
+        for (Track track : more) {
+            tracks[i++] = track;
+        }
+        return new TrackList(tracks);
+    }
+
+    @Override
+    public Track get(int index) {
+        return tracks[index];
+    }
+
+    @Override
+    public int size() {
+        return tracks.length;
+    }
+
+    /**
+     * Find a track by ID in O(1); the first lookup builds the index in O(n)
+     * @param trackId ID of the track
+     * @return Position of its first occurrence, or -1 if it is not in the list
+     */
+    public int indexOfId(long trackId) {
+        IdIndex index = idIndex;
+        if (index == null) {
+            index = new IdIndex(tracks);
+            idIndex = index;
+        }
+        return index.find(trackId);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Track)) {
+            return -1;
+        }
+        int position = indexOfId(((Track) o).getId());
+        // Tracks compare by identity; a different object with the same ID falls back to a scan
+        return position >= 0 && tracks[position] == o ? position : super.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Open-addressing map from track ID to position, two flat arrays
+     */
+    private static final class IdIndex {
+        private final long[] ids;
+        // -1 marks a free slot
+        private final int[] positions;
+        private final int mask;
+
+        IdIndex(Track[] tracks) {
+            int capacity = Integer.highestOneBit(Math.max(tracks.length * 2, 16) - 1) << 1;
+            ids = new long[capacity];
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+            mask = capacity - 1;
+            for (int i = 0; i < tracks.length; i++) {
+                int slot = slotOf(tracks[i].getId());
+                if (positions[slot] < 0) {
+                    // The first occurrence wins, like List.indexOf
+                    ids[slot] = tracks[i].getId();
+                    positions[slot] = i;
+                }
+            }
+        }
+
+        int find(long id) {
+            return positions[slotOf(id)];
+        }
+
+        /**
+         * Find the slot holding the ID, or the free slot where it would go
+         */
+        private int slotOf(long id) {
+            int slot = mix(id) & mask;
+            while (positions[slot] >= 0 && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Spread sequential IDs across the table (Fibonacci hashing)
+         */
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
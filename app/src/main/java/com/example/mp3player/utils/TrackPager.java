@@ -0,0 +1,595 @@
+package com.example.mp3player.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.mp3player.api.RequestHandle;
+import com.example.mp3player.models.Track;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Windowed, page-by-page track list backing a RecyclerView.
+ * Pages are appended as the user scrolls near the end (prefetch), and pages far
+ * from the most recently bound position are dropped to keep memory bounded;
+ * a dropped page is reloaded from its cursor when it scrolls back into view.
+ * All methods must be called on the main thread; loader results are handed
+ * back through the callback executor.
+ * A track shows at most once: rows whose track is already in the list are dropped
+ * as pages arrive, since APIs can repeat a track across pages and the adapter uses
+ * track IDs as stable IDs.
+ */
+public class TrackPager {
+
+    /**
+     * Change payload for rows where only the in-library flag changed
+     */
+    public static final Object PAYLOAD_IN_LIBRARY = "in_library";
+
+    public interface PageLoader {
+        /**
+         * Load one page starting at the given cursor
+         * @param cursor Opaque position of the page, as returned with the previous page;
+         *               null when reloading a first page that was seeded with {@link #setFirstPage}
+         * @param pageSize Requested number of tracks
+         * @param callback Receives the page and the cursor of the page after it
+         * @return Handle for cancelling the load, or null if it cannot be cancelled
+         */
+        RequestHandle loadPage(Object cursor, int pageSize, PageCallback callback);
+    }
+
+    public interface PageCallback {
+        /**
+         * @param tracks The tracks in the page
+         * @param nextCursor Cursor for the following page, or null if this was the last one
+         */
+        void onPageLoaded(List<Track> tracks, Object nextCursor);
+        void onError(Exception e);
+    }
+
+    public interface Listener {
+        void onItemRangeInserted(int positionStart, int itemCount);
+        void onItemRangeRemoved(int positionStart, int itemCount);
+        /**
+         * @param payload What changed, for a partial rebind; null if the whole row changed
+         */
+        void onItemRangeChanged(int positionStart, int itemCount, Object payload);
+    }
+
+    private final PageLoader loader;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxResidentPages;
+    private final Executor callbackExecutor;
+
+    // Cursor and start position of every page seen so far; kept after eviction so the page can be reloaded
+    private final List<Object> pageCursors = new ArrayList<>();
+    private final List<Integer> pageStarts = new ArrayList<>();
+    // Rows each page read from its source before duplicates were dropped, which is what a reload asks for
+    private final List<Integer> pageSourceCounts = new ArrayList<>();
+    // IDs of the rows each page kept, so a reload drops the same duplicates
+    private final List<long[]> pageTrackIds = new ArrayList<>();
+    private final Map<Integer, List<Track>> residentPages = new HashMap<>();
+    private final Map<Integer, RequestHandle> pendingLoads = new HashMap<>();
+
+    private Object nextCursor;
+    private boolean endReached;
+    private boolean appendFailed;
+    private boolean released;
+    private int size;
+    private int lastAccessedPage;
+    // Built on demand and kept until a page or its rows change
+    private TrackList residentTracks;
+    // IDs of every row in the list, including rows of evicted pages
+    private final LongHashSet trackIds = new LongHashSet();
+
+    private Listener listener;
+    private Consumer<Exception> errorListener;
+
+    /**
+     * Create a pager that delivers loader results on the main thread
+     */
+    public TrackPager(PageLoader loader, int pageSize, int prefetchDistance, int maxResidentPages) {
+        this(loader, pageSize, prefetchDistance, maxResidentPages, new Handler(Looper.getMainLooper())::post);
+    }
+
+    public TrackPager(PageLoader loader, int pageSize, int prefetchDistance, int maxResidentPages,
+                      Executor callbackExecutor) {
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.maxResidentPages = Math.max(2, maxResidentPages);
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Create a pager over a fixed list that never loads more
+     * @param tracks The tracks to show
+     * @return A single-page pager
+     */
+    public static TrackPager of(List<Track> tracks) {
+        TrackPager pager = new TrackPager(null, tracks.size(), 0, 2, Runnable::run);
+        pager.setFirstPage(tracks, null);
+        return pager;
+    }
+
+    /**
+     * Start loading from the first page
+     * @param firstCursor Cursor of the first page
+     */
+    public void loadInitial(Object firstCursor) {
+        nextCursor = firstCursor;
+        appendNextPage();
+    }
+
+    /**
+     * Seed the pager with an already loaded first page
+     * @param tracks The first page
+     * @param nextCursor Cursor of the second page, or null if there is none
+     */
+    public void setFirstPage(List<Track> tracks, Object nextCursor) {
+        if (!pageCursors.isEmpty()) {
+            throw new IllegalStateException("First page already loaded");
+        }
+        this.nextCursor = null;
+        addPage(null, tracks, nextCursor);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setOnLoadErrorListener(Consumer<Exception> errorListener) {
+        this.errorListener = errorListener;
+    }
+
+    /**
+     * @return Number of positions known so far, including positions of evicted pages
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    /**
+     * Get the track at a position, loading or prefetching pages as needed.
+     * Call this when binding a row; the position drives prefetching and eviction.
+     * @param position The adapter position
+     * @return The track, or null while its page is being reloaded
+     */
+    public Track get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+        }
+
+        int page = pageFor(position);
+        lastAccessedPage = page;
+
+        List<Track> tracks = residentPages.get(page);
+        if (tracks == null) {
+            loadPage(page, pageCursors.get(page));
+        }
+
+        if (position >= size - prefetchDistance) {
+            appendNextPage();
+        }
+        evictPagesFarFrom(page);
+
+        if (tracks == null) {
+            return null;
+        }
+        int offset = position - pageStarts.get(page);
+        return offset < tracks.size() ? tracks.get(offset) : null;
+    }
+
+    /**
+     * Get the track at a position if its page is in memory, without loading,
+     * prefetching or evicting anything
+     * @param position The adapter position
+     * @return The track, or null if its page is not resident
+     */
+    public Track peek(int position) {
+        if (position < 0 || position >= size) {
+            return null;
+        }
+        int page = pageFor(position);
+        List<Track> tracks = residentPages.get(page);
+        if (tracks == null) {
+            return null;
+        }
+        int offset = position - pageStarts.get(page);
+        return offset < tracks.size() ? tracks.get(offset) : null;
+    }
+
+    /**
+     * Get every position of the list, for diffing against another list
+     * @return All tracks in list order, or null if some page is not in memory
+     */
+    public List<Track> snapshot() {
+        if (residentPages.size() < pageCursors.size()) {
+            return null;
+        }
+        return getResidentTracks();
+    }
+
+    /**
+     * Get the tracks currently held in memory, in list order.
+     * The same instance is returned until pages are loaded, evicted or changed,
+     * so it can be handed to the player without copying.
+     * @return Tracks of all resident pages
+     */
+    public TrackList getResidentTracks() {
+        if (residentTracks == null) {
+            List<Track> result = new ArrayList<>();
+            for (int page = 0; page < pageCursors.size(); page++) {
+                List<Track> tracks = residentPages.get(page);
+                if (tracks != null) {
+                    result.addAll(tracks);
+                }
+            }
+            residentTracks = TrackList.copyOf(result);
+        }
+        return residentTracks;
+    }
+
+    /**
+     * @return Number of pages currently held in memory
+     */
+    public int getResidentPageCount() {
+        return residentPages.size();
+    }
+
+    /**
+     * Insert tracks at the top of the list, e.g. ones just added to a newest-first library.
+     * Only possible while the first page is in memory; otherwise the caller should
+     * reload, since the new rows could not be placed without re-reading the first page.
+     * @param tracks The tracks to insert, in list order
+     * @return true if the tracks were inserted
+     */
+    public boolean prepend(List<Track> tracks) {
+        if (tracks.isEmpty()) {
+            return true;
+        }
+        if (pageCursors.isEmpty()) {
+            if (!endReached) {
+                return false; // First page still loading; it will include the new rows
+            }
+            addPage(null, tracks, null);
+            return true;
+        }
+
+        List<Track> first = residentPages.get(0);
+        if (first == null) {
+            return false;
+        }
+        tracks = withoutDuplicates(tracks, trackIds);
+        if (tracks.isEmpty()) {
+            return true;
+        }
+        first.addAll(0, tracks);
+        residentTracks = null;
+        pageSourceCounts.set(0, pageSourceCounts.get(0) + tracks.size());
+        pageTrackIds.set(0, idsOf(first));
+        shiftPageStarts(1, tracks.size());
+        size += tracks.size();
+        if (listener != null) {
+            listener.onItemRangeInserted(0, tracks.size());
+        }
+        return true;
+    }
+
+    /**
+     * Remove a track from the list.
+     * @param trackId ID of the track to remove
+     * @return true if the list is now up to date: the track was removed, or it is in
+     *         none of the loaded pages. false if it may be in an evicted page, in
+     *         which case the caller should reload.
+     */
+    public boolean remove(long trackId) {
+        boolean allPagesResident = true;
+        for (int page = 0; page < pageCursors.size(); page++) {
+            List<Track> tracks = residentPages.get(page);
+            if (tracks == null) {
+                allPagesResident = false;
+                continue;
+            }
+            for (int i = 0; i < tracks.size(); i++) {
+                if (tracks.get(i).getId() == trackId) {
+                    tracks.remove(i);
+                    trackIds.remove(trackId);
+                    residentTracks = null;
+                    pageSourceCounts.set(page, Math.max(0, pageSourceCounts.get(page) - 1));
+                    pageTrackIds.set(page, idsOf(tracks));
+                    int position = pageStarts.get(page) + i;
+                    shiftPageStarts(page + 1, -1);
+                    size--;
+                    if (listener != null) {
+                        listener.onItemRangeRemoved(position, 1);
+                    }
+                    return true;
+                }
+            }
+        }
+        // Pages not loaded yet need no change: they will be read without the track
+        return allPagesResident;
+    }
+
+    /**
+     * Change every in-memory copy of a track in place and report the rows as changed.
+     * Evicted pages need no change; they are re-read when they come back into view.
+     * @param trackId ID of the track to change
+     * @param change Applied to each matching track
+     * @param payload Passed to the listener for a partial rebind, or null to rebind the whole row
+     * @return Number of rows changed
+     */
+    public int updateTrack(long trackId, Consumer<Track> change, Object payload) {
+        int changed = 0;
+        for (Map.Entry<Integer, List<Track>> entry : residentPages.entrySet()) {
+            List<Track> tracks = entry.getValue();
+            for (int i = 0; i < tracks.size(); i++) {
+                if (tracks.get(i).getId() == trackId) {
+                    change.accept(tracks.get(i));
+                    changed++;
+                    if (listener != null) {
+                        listener.onItemRangeChanged(pageStarts.get(entry.getKey()) + i, 1, payload);
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Retry appending after a failed page load
+     */
+    public void retry() {
+        appendFailed = false;
+        appendNextPage();
+    }
+
+    /**
+     * Cancel pending loads and stop delivering events
+     */
+    public void release() {
+        released = true;
+        listener = null;
+        errorListener = null;
+        for (RequestHandle handle : pendingLoads.values()) {
+            if (handle != null) {
+                handle.cancel();
+            }
+        }
+        pendingLoads.clear();
+    }
+
+    private void appendNextPage() {
+        if (endReached || appendFailed || nextCursor == null || loader == null) {
+            return;
+        }
+        loadPage(pageCursors.size(), nextCursor);
+    }
+
+    private void loadPage(final int page, final Object cursor) {
+        if (released || loader == null || pendingLoads.containsKey(page)) {
+            return;
+        }
+
+        // Cursors count source rows, so a reload asks for as many as the page first read
+        int count = page < pageSourceCounts.size() ? pageSourceCounts.get(page) : pageSize;
+
+        // Mark as pending before calling out, the loader may answer synchronously
+        pendingLoads.put(page, null);
+        RequestHandle handle = loader.loadPage(cursor, count, new PageCallback() {
+            @Override
+            public void onPageLoaded(List<Track> tracks, Object next) {
+                callbackExecutor.execute(() -> onPageLoadedInternal(page, cursor, tracks, next));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callbackExecutor.execute(() -> onPageFailed(page, e));
+            }
+        });
+
+        if (pendingLoads.containsKey(page) && handle != null) {
+            pendingLoads.put(page, handle);
+        }
+    }
+
+    private void onPageLoadedInternal(int page, Object cursor, List<Track> tracks, Object next) {
+        if (released || !pendingLoads.containsKey(page)) {
+            return; // Cancelled or evicted meanwhile
+        }
+        pendingLoads.remove(page);
+
+        if (page == pageCursors.size()) {
+            addPage(cursor, tracks, next);
+        } else {
+            reloadPage(page, tracks);
+        }
+    }
+
+    /**
+     * Put back an evicted page that was read again.
+     * The page drops the same duplicates it dropped on its first load: rows it held
+     * before are kept, rows any other page holds, resident or not, are dropped, and
+     * rows new to the list are kept. If the source changed meanwhile and the page
+     * comes back longer or shorter, the difference is reported as inserted or removed rows.
+     */
+    private void reloadPage(int page, List<Track> tracks) {
+        long[] previousIds = pageTrackIds.get(page);
+        LongHashSet ownIds = new LongHashSet(previousIds.length);
+        for (long id : previousIds) {
+            ownIds.add(id);
+        }
+
+        LongHashSet keptIds = new LongHashSet(tracks.size());
+        List<Track> rows = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            long id = track.getId();
+            if ((ownIds.contains(id) || !trackIds.contains(id)) && keptIds.add(id)) {
+                rows.add(track);
+            }
+        }
+        for (long id : previousIds) {
+            if (!keptIds.contains(id)) {
+                trackIds.remove(id);
+            }
+        }
+        for (Track track : rows) {
+            trackIds.add(track.getId());
+        }
+
+        int start = pageStarts.get(page);
+        int previousLength = pageLength(page);
+        int delta = rows.size() - previousLength;
+        residentPages.put(page, rows);
+        pageTrackIds.set(page, idsOf(rows));
+        residentTracks = null;
+        shiftPageStarts(page + 1, delta);
+        size += delta;
+
+        if (listener != null) {
+            int sharedLength = Math.min(previousLength, rows.size());
+            if (sharedLength > 0) {
+                listener.onItemRangeChanged(start, sharedLength, null);
+            }
+            if (delta > 0) {
+                listener.onItemRangeInserted(start + previousLength, delta);
+            } else if (delta < 0) {
+                listener.onItemRangeRemoved(start + rows.size(), -delta);
+            }
+        }
+        evictPagesFarFrom(lastAccessedPage);
+    }
+
+    private void addPage(Object cursor, List<Track> tracks, Object next) {
+        if (tracks.isEmpty()) {
+            endReached = true;
+            nextCursor = null;
+            return;
+        }
+
+        List<Track> rows = withoutDuplicates(tracks, trackIds);
+        int page = pageCursors.size();
+        int start = size;
+        pageCursors.add(cursor);
+        pageStarts.add(start);
+        pageSourceCounts.add(tracks.size());
+        pageTrackIds.add(idsOf(rows));
+        residentPages.put(page, rows);
+        residentTracks = null;
+        size += rows.size();
+
+        nextCursor = next;
+        endReached = next == null;
+
+        if (listener != null && !rows.isEmpty()) {
+            listener.onItemRangeInserted(start, rows.size());
+        }
+        evictPagesFarFrom(lastAccessedPage);
+        if (rows.isEmpty()) {
+            // Nothing new to bind, so no bind would ask for the page after it
+            appendNextPage();
+        }
+    }
+
+    /**
+     * Copy a page without the tracks already seen, recording the ones kept
+     * @param tracks The tracks as loaded
+     * @param seen IDs already in the list; the kept tracks are added to it
+     * @return A new, modifiable list
+     */
+    private static List<Track> withoutDuplicates(List<Track> tracks, LongHashSet seen) {
+        List<Track> rows = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            if (seen.add(track.getId())) {
+                rows.add(track);
+            }
+        }
+        return rows;
+    }
+
+    private static long[] idsOf(List<Track> tracks) {
+        long[] ids = new long[tracks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tracks.get(i).getId();
+        }
+        return ids;
+    }
+
+    private void onPageFailed(int page, Exception e) {
+        if (released || !pendingLoads.containsKey(page)) {
+            return;
+        }
+        pendingLoads.remove(page);
+
+        if (page == pageCursors.size()) {
+            // Stop prefetching until retry() so a dead network is not hammered on every bind
+            appendFailed = true;
+        }
+        if (errorListener != null) {
+            errorListener.accept(e);
+        }
+    }
+
+    private void evictPagesFarFrom(int centerPage) {
+        int keepBefore = (maxResidentPages - 1) / 2;
+        int keepAfter = maxResidentPages - 1 - keepBefore;
+
+        Iterator<Map.Entry<Integer, List<Track>>> it = residentPages.entrySet().iterator();
+        while (it.hasNext()) {
+            int page = it.next().getKey();
+            if (page < centerPage - keepBefore || page > centerPage + keepAfter) {
+                it.remove();
+                residentTracks = null;
+            }
+        }
+
+        Iterator<Map.Entry<Integer, RequestHandle>> pending = pendingLoads.entrySet().iterator();
+        while (pending.hasNext()) {
+            Map.Entry<Integer, RequestHandle> entry = pending.next();
+            int page = entry.getKey();
+            boolean isAppend = page == pageCursors.size();
+            if (!isAppend && (page < centerPage - keepBefore || page > centerPage + keepAfter)) {
+                if (entry.getValue() != null) {
+                    entry.getValue().cancel();
+                }
+                pending.remove();
+            }
+        }
+    }
+
+    private int pageFor(int position) {
+        int index = Collections.binarySearch(pageStarts, position);
+        if (index < 0) {
+            return -index - 2;
+        }
+        // Pages emptied by remove() share their start with the next page; skip past them
+        while (index + 1 < pageStarts.size() && pageStarts.get(index + 1) == position) {
+            index++;
+        }
+        return index;
+    }
+
+    private void shiftPageStarts(int fromPage, int delta) {
+        for (int page = fromPage; page < pageStarts.size(); page++) {
+            pageStarts.set(page, pageStarts.get(page) + delta);
+        }
+    }
+
+    private int pageLength(int page) {
+        int end = page + 1 < pageStarts.size() ? pageStarts.get(page + 1) : size;
+        return end - pageStarts.get(page);
+    }
+}
@@ -7,13 +7,19 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.example.mp3player.api.DeezerApiClient;
 import com.example.mp3player.models.Track;
+import com.example.mp3player.models.TrackPage;
 import com.example.mp3player.repositories.MusicRepository;
+import com.example.mp3player.utils.TrackList;
+import com.example.mp3player.utils.TrackPager;
 
 import java.util.List;
 
 public class HomeViewModel extends AndroidViewModel {
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int MAX_RESIDENT_PAGES = 6;
+    
     private final MusicRepository musicRepository;
-    private final MutableLiveData<List<Track>> recommendedTracks;
+    private final MutableLiveData<TrackPager> recommendedTracks;
     private final MutableLiveData<List<Track>> newReleases;
     private final MutableLiveData<Boolean> isLoading;
     private final MutableLiveData<String> errorMessage;
@@ -27,7 +33,7 @@ public class HomeViewModel extends AndroidViewModel {
         this.errorMessage = new MutableLiveData<>();
     }
     
-    public MutableLiveData<List<Track>> getRecommendedTracks() {
+    public MutableLiveData<TrackPager> getRecommendedTracks() {
         return recommendedTracks;
     }
     
@@ -46,10 +52,15 @@ public class HomeViewModel extends AndroidViewModel {
     public void loadRecommendations() {
         isLoading.setValue(true);
         
-        musicRepository.getRecommendations(new DeezerApiClient.ChartCallback() {
+        musicRepository.getChartFirstPage(new DeezerApiClient.PageCallback() {
             @Override
-            public void onSuccess(List<Track> tracks) {
-                recommendedTracks.postValue(tracks);
+            public void onSuccess(TrackPage page) {
+                // Further chart pages are fetched as the row is scrolled
+                TrackPager pager = new TrackPager(musicRepository.chartPageLoader(),
+                        DeezerApiClient.CHART_PAGE_SIZE, PREFETCH_DISTANCE, MAX_RESIDENT_PAGES);
+                pager.setFirstPage(page.getTracks(), page.hasNext() ? page.getNextIndex() : null);
+                pager.setOnLoadErrorListener(e -> errorMessage.setValue("Failed to load more tracks: " + e.getMessage()));
+                recommendedTracks.postValue(pager);
                 isLoading.postValue(false);
             }
             
@@ -62,10 +73,11 @@ public class HomeViewModel extends AndroidViewModel {
     }
     
     public void loadNewReleases() {
-        musicRepository.getNewReleases(new DeezerApiClient.ChartCallback() {
+        musicRepository.getNewReleases(new DeezerApiClient.PageCallback() {
             @Override
-            public void onSuccess(List<Track> tracks) {
-                newReleases.postValue(tracks);
+            public void onSuccess(TrackPage page) {
+                // Shared read-only, so playing from it queues this list without copying
+                newReleases.postValue(TrackList.copyOf(page.getTracks()));
             }
             
             @Override
@@ -75,6 +87,15 @@ public class HomeViewModel extends AndroidViewModel {
         });
     }
     
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        TrackPager pager = recommendedTracks.getValue();
+        if (pager != null) {
+            pager.release();
+        }
+    }
+    
     public void refreshData() {
         loadRecommendations();
         loadNewReleases();
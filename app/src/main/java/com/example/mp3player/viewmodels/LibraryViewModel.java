@@ -1,22 +1,34 @@
 package com.example.mp3player.viewmodels;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.mp3player.database.DatabaseExecutor;
+import com.example.mp3player.database.LibraryPage;
+import com.example.mp3player.models.LibraryChange;
 import com.example.mp3player.models.Track;
+import com.example.mp3player.models.User;
 import com.example.mp3player.repositories.MusicRepository;
 import com.example.mp3player.repositories.UserRepository;
-
-import java.util.List;
+import com.example.mp3player.utils.TrackPager;
 
 public class LibraryViewModel extends AndroidViewModel {
+    private static final int LIBRARY_PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 15;
+    private static final int MAX_RESIDENT_PAGES = 6;
+    
     private final MusicRepository musicRepository;
     private final UserRepository userRepository;
-    private final MutableLiveData<List<Track>> libraryTracks;
+    private final MutableLiveData<TrackPager> libraryTracks;
     private final MutableLiveData<Boolean> isLoading;
     private final MutableLiveData<String> errorMessage;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MusicRepository.LibraryChangeListener libraryChangeListener = this::applyLibraryChange;
     
     public LibraryViewModel(Application application) {
         super(application);
@@ -25,9 +37,13 @@ public class LibraryViewModel extends AndroidViewModel {
         this.libraryTracks = new MutableLiveData<>();
         this.isLoading = new MutableLiveData<>(false);
         this.errorMessage = new MutableLiveData<>();
+        musicRepository.addLibraryChangeListener(libraryChangeListener);
     }
     
-    public MutableLiveData<List<Track>> getLibraryTracks() {
+    /**
+     * The library as a windowed list: only pages near the visible rows are kept in memory
+     */
+    public MutableLiveData<TrackPager> getLibraryTracks() {
         return libraryTracks;
     }
     
@@ -39,60 +55,154 @@ public class LibraryViewModel extends AndroidViewModel {
         return errorMessage;
     }
     
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        musicRepository.removeLibraryChangeListener(libraryChangeListener);
+        TrackPager pager = libraryTracks.getValue();
+        if (pager != null) {
+            pager.release();
+        }
+    }
+    
+    /**
+     * Load the first page of the library; later pages load as the list scrolls
+     */
     public void loadLibrary() {
-        isLoading.setValue(true);
-        if (userRepository.getCurrentUser() == null) {
+        User user = userRepository.getCurrentUser();
+        if (user == null) {
             errorMessage.setValue("Please login to view your library");
             return;
         }
         
-        long userId = userRepository.getCurrentUser().getId();
-        List<Track> tracks = musicRepository.getLibraryTracks(userId);
-        libraryTracks.setValue(tracks);
-        isLoading.setValue(false);
+        isLoading.setValue(true);
+        long userId = user.getId();
+        DatabaseExecutor.executeWrite(() -> {
+            postFirstPage(userId);
+            isLoading.postValue(false);
+        });
     }
     
     public void addToLibrary(Track track) {
-        if (userRepository.getCurrentUser() == null) {
+        User user = userRepository.getCurrentUser();
+        if (user == null) {
             errorMessage.setValue("Please login to add to library");
             return;
         }
         
-        long userId = userRepository.getCurrentUser().getId();
-        int result = musicRepository.addToLibrary(userId, track);
-        
-        if (result == 1) {
-            loadLibrary();
-            errorMessage.setValue("Added to library");
-        } else if (result == 0) {
-            errorMessage.setValue("Track already in library");
-        } else {
-            errorMessage.setValue("Failed to add to library");
-        }
+        long userId = user.getId();
+        DatabaseExecutor.executeWrite(() -> {
+            // On success the list is updated through the library change event
+            int result = musicRepository.addToLibrary(userId, track);
+            
+            if (result == 1) {
+                errorMessage.postValue("Added to library");
+            } else if (result == 0) {
+                errorMessage.postValue("Track already in library");
+            } else {
+                errorMessage.postValue("Failed to add to library");
+            }
+        });
     }
     
     public void removeFromLibrary(long trackId) {
-        if (userRepository.getCurrentUser() == null) {
+        User user = userRepository.getCurrentUser();
+        if (user == null) {
             errorMessage.setValue("Please login");
             return;
         }
         
-        long userId = userRepository.getCurrentUser().getId();
-        boolean success = musicRepository.removeFromLibrary(userId, trackId);
-        
-        if (success) {
-            loadLibrary();
-        } else {
-            errorMessage.setValue("Failed to remove track");
-        }
+        long userId = user.getId();
+        DatabaseExecutor.executeWrite(() -> {
+            boolean success = musicRepository.removeFromLibrary(userId, trackId);
+            
+            if (!success) {
+                errorMessage.postValue("Failed to remove track");
+            }
+        });
     }
     
+    /**
+     * Check if a track is in the current user's library.
+     * The first check for a user reads the database, so call it from a background thread only.
+     * @param trackId The track ID to check
+     * @return true if track is in library, false otherwise
+     */
+    @WorkerThread
     public boolean isInLibrary(long trackId) {
-        if (userRepository.getCurrentUser() == null) {
+        User user = userRepository.getCurrentUser();
+        if (user == null) {
             return false;
         }
         
-        long userId = userRepository.getCurrentUser().getId();
-        return musicRepository.isInLibrary(userId, trackId);
+        return musicRepository.isInLibrary(user.getId(), trackId);
+    }
+    
+    /**
+     * Apply a committed library change to the list on screen without re-reading it.
+     * Falls back to reloading the first page only when the change touches rows
+     * whose page has been evicted from memory.
+     */
+    private void applyLibraryChange(LibraryChange change) {
+        User user = userRepository.getCurrentUser();
+        TrackPager pager = libraryTracks.getValue();
+        if (user == null || user.getId() != change.getUserId() || pager == null) {
+            return; // Nothing on screen yet; the next load reads the change anyway
+        }
+        
+        boolean applied = true;
+        switch (change.getType()) {
+            case INSERTED:
+                applied = pager.prepend(change.getTracks());
+                break;
+            case DELETED:
+                for (long trackId : change.getTrackIds()) {
+                    applied &= pager.remove(trackId);
+                }
+                break;
+            case UPDATED:
+                for (Track updated : change.getTracks()) {
+                    pager.updateTrack(updated.getId(), track -> copyMetadata(updated, track), null);
+                }
+                break;
+        }
+        
+        if (!applied) {
+            long userId = user.getId();
+            DatabaseExecutor.executeWrite(() -> postFirstPage(userId));
+        } else if (change.getType() != LibraryChange.Type.UPDATED) {
+            // Same pager, so the adapter keeps it; observers only re-check the empty state
+            libraryTracks.setValue(pager);
+        }
+    }
+    
+    private static void copyMetadata(Track from, Track to) {
+        to.setTitle(from.getTitle());
+        to.setArtist(from.getArtist());
+        to.setAlbum(from.getAlbum());
+        to.setArtworkSmallUrl(from.getArtworkSmallUrl());
+        to.setArtworkUrl(from.getArtworkUrl());
+        to.setArtworkBigUrl(from.getArtworkBigUrl());
+        to.setArtworkXlUrl(from.getArtworkXlUrl());
+        to.setPreviewUrl(from.getPreviewUrl());
+        to.setDuration(from.getDuration());
+    }
+    
+    /**
+     * Read the first page and publish a pager seeded with it.
+     * Runs on the DB write executor, between writes: every change committed before the
+     * read is in the page and its event reaches the main thread before the pager does,
+     * so it is applied to the old pager; every later change is applied to the new one.
+     */
+    @WorkerThread
+    private void postFirstPage(long userId) {
+        LibraryPage firstPage = musicRepository.getLibraryPage(userId, null, LIBRARY_PAGE_SIZE);
+        
+        TrackPager pager = new TrackPager(musicRepository.libraryPageLoader(userId),
+                LIBRARY_PAGE_SIZE, PREFETCH_DISTANCE, MAX_RESIDENT_PAGES);
+        pager.setFirstPage(firstPage.getTracks(), firstPage.getNextKey());
+        pager.setOnLoadErrorListener(e -> errorMessage.setValue("Failed to load library: " + e.getMessage()));
+        // Not postValue, which would publish at the position of an earlier pending post
+        mainHandler.post(() -> libraryTracks.setValue(pager));
     }
 }
@@ -15,39 +15,36 @@ public class PlayerViewModel extends ViewModel {
     private final MutableLiveData<Integer> currentPosition = new MutableLiveData<>(0);
     private final MutableLiveData<Integer> duration = new MutableLiveData<>(0);
     
+    // Events arrive on the main thread, so values are set rather than posted
+    private final MusicService.OnPlaybackStateChangeListener playbackListener = new MusicService.OnPlaybackStateChangeListener() {
+        @Override
+        public void onPlaybackStateChanged(boolean playing) {
+            isPlaying.setValue(playing);
+        }
+        
+        @Override
+        public void onTrackChanged(Track track) {
+            currentTrack.setValue(track);
+        }
+        
+        @Override
+        public void onProgressChanged(int position, int dur) {
+            currentPosition.setValue(position);
+            if (dur > 0) {
+                duration.setValue(dur);
+            }
+        }
+    };
+    
     public void setMusicService(MusicService service) {
+        if (musicService != null) {
+            musicService.removePlaybackStateChangeListener(playbackListener);
+        }
         this.musicService = service;
         
         if (service != null) {
-            service.setPlaybackStateChangeListener(new MusicService.OnPlaybackStateChangeListener() {
-                @Override
-                public void onPlaybackStateChanged(boolean playing) {
-                    isPlaying.postValue(playing);
-                }
-                
-                @Override
-                public void onTrackChanged(Track track) {
-                    currentTrack.postValue(track);
-                    if (musicService != null) {
-                        duration.postValue(musicService.getDuration());
-                    }
-                }
-                
-                @Override
-                public void onProgressChanged(int position, int dur) {
-                    currentPosition.postValue(position);
-                    duration.postValue(dur);
-                }
-            });
-            
-            // Initialize with current state
-            Track track = service.getCurrentTrack();
-            if (track != null) {
-                currentTrack.setValue(track);
-                isPlaying.setValue(service.isPlaying());
-                duration.setValue(service.getDuration());
-                currentPosition.setValue(service.getCurrentPosition());
-            }
+            // Replays the current track, state and progress
+            service.addPlaybackStateChangeListener(playbackListener);
         }
     }
     
@@ -98,15 +95,6 @@ public class PlayerViewModel extends ViewModel {
         }
     }
     
-    public void updateProgress() {
-        if (musicService != null) {
-            currentPosition.setValue(musicService.getCurrentPosition());
-            if (duration.getValue() == null || duration.getValue() == 0) {
-                duration.setValue(musicService.getDuration());
-            }
-        }
-    }
-    
     public LiveData<Track> getCurrentTrack() {
         return currentTrack;
     }
@@ -130,4 +118,10 @@ public class PlayerViewModel extends ViewModel {
     public boolean hasPrevious() {
         return musicService != null && musicService.hasPrevious();
     }
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        setMusicService(null);
+    }
 }
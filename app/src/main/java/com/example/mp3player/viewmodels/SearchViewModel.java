@@ -1,34 +1,78 @@
 package com.example.mp3player.viewmodels;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.mp3player.api.DeezerApiClient;
+import com.example.mp3player.api.RequestHandle;
+import com.example.mp3player.database.DatabaseExecutor;
+import com.example.mp3player.models.LibraryChange;
 import com.example.mp3player.models.Track;
+import com.example.mp3player.models.TrackPage;
+import com.example.mp3player.models.User;
 import com.example.mp3player.repositories.MusicRepository;
+import com.example.mp3player.repositories.UserRepository;
+import com.example.mp3player.utils.LongHashSet;
+import com.example.mp3player.utils.SearchResultCache;
+import com.example.mp3player.utils.TrackPager;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SearchViewModel extends AndroidViewModel {
+    private static final int RESULT_CACHE_SIZE = 32;
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final int MAX_RESIDENT_PAGES = 8;
+    private static final int LOCAL_RESULT_LIMIT = 5;
+    
+    // Shared across fragment instances so results survive leaving the search tab
+    // Entries live as long as the HTTP cache keeps search responses
+    private static final SearchResultCache resultCache = new SearchResultCache(RESULT_CACHE_SIZE,
+            () -> TimeUnit.SECONDS.toMillis(DeezerApiClient.getCachePolicy().getSearchMaxAgeSeconds()));
+    
     private final MusicRepository musicRepository;
-    private final MutableLiveData<List<Track>> searchResults;
+    private final UserRepository userRepository;
+    private final MutableLiveData<TrackPager> searchResults;
+    private final MutableLiveData<List<Track>> localResults;
     private final MutableLiveData<Boolean> isLoading;
     private final MutableLiveData<String> errorMessage;
+    private final MusicRepository.LibraryChangeListener libraryChangeListener = this::applyLibraryChange;
+    
+    // Incremented for every query; responses tagged with an older value are dropped
+    private final AtomicInteger searchSequence = new AtomicInteger();
+    private RequestHandle pendingSearch;
+    // Sequence of the query whose final results are shown; provisional results never replace them
+    private int resultsSequence;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     public SearchViewModel(Application application) {
         super(application);
         this.musicRepository = new MusicRepository(application);
+        this.userRepository = new UserRepository(application);
         this.searchResults = new MutableLiveData<>();
+        this.localResults = new MutableLiveData<>();
         this.isLoading = new MutableLiveData<>(false);
         this.errorMessage = new MutableLiveData<>();
+        musicRepository.addLibraryChangeListener(libraryChangeListener);
     }
     
-    public MutableLiveData<List<Track>> getSearchResults() {
+    public MutableLiveData<TrackPager> getSearchResults() {
         return searchResults;
     }
     
+    /**
+     * Matches from the user's own library, available before the network answers
+     */
+    public MutableLiveData<List<Track>> getLocalResults() {
+        return localResults;
+    }
+    
     public MutableLiveData<Boolean> getIsLoading() {
         return isLoading;
     }
@@ -37,30 +81,187 @@ public class SearchViewModel extends AndroidViewModel {
         return errorMessage;
     }
     
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        musicRepository.removeLibraryChangeListener(libraryChangeListener);
+        cancelPendingSearch();
+        TrackPager pager = searchResults.getValue();
+        if (pager != null) {
+            pager.release();
+        }
+    }
+    
     public void search(String query) {
+        // Whatever is in flight now answers a superseded query
+        cancelPendingSearch();
+        final int sequence = searchSequence.incrementAndGet();
+        
         if (query == null || query.trim().isEmpty()) {
             searchResults.setValue(null);
+            localResults.setValue(null);
+            isLoading.setValue(false);
+            return;
+        }
+        
+        final String normalizedQuery = SearchResultCache.normalize(query);
+        searchLibrary(normalizedQuery, sequence);
+        
+        // Exact hit: answer locally and skip the request entirely. Cached tracks are
+        // fresh copies whose in-library flags may be stale, so they are re-marked first
+        SearchResultCache.Entry cached = resultCache.get(normalizedQuery);
+        if (cached != null) {
+            List<Track> tracks = cached.getTracks();
+            Object nextCursor = cached.getNextCursor();
+            DatabaseExecutor.execute(() -> {
+                musicRepository.markLibraryStatus(tracks);
+                postIfCurrent(sequence, () -> showResults(sequence, createPager(normalizedQuery, tracks, nextCursor)));
+            });
             return;
         }
         
         isLoading.setValue(true);
         
-        musicRepository.searchTracks(query, new DeezerApiClient.SearchCallback() {
+        // Prefix hit: show filtered results of a shorter query while the network answers
+        List<Track> provisional = resultCache.findByPrefix(normalizedQuery);
+        if (provisional != null && !provisional.isEmpty()) {
+            DatabaseExecutor.execute(() -> {
+                musicRepository.markLibraryStatus(provisional);
+                postIfCurrent(sequence, () -> {
+                    if (resultsSequence != sequence) {
+                        searchResults.setValue(TrackPager.of(provisional));
+                    }
+                });
+            });
+        }
+        
+        pendingSearch = musicRepository.searchTracksFirstPage(normalizedQuery, new DeezerApiClient.PageCallback() {
             @Override
-            public void onSuccess(List<Track> tracks) {
-                searchResults.postValue(tracks);
-                isLoading.postValue(false);
+            public void onSuccess(TrackPage page) {
+                Object nextCursor = page.hasNext() ? page.getNextIndex() : null;
+                resultCache.put(normalizedQuery, page.getTracks(), nextCursor);
+                postIfCurrent(sequence, () -> showResults(sequence, createPager(normalizedQuery, page.getTracks(), nextCursor)));
             }
             
             @Override
             public void onError(Exception e) {
-                errorMessage.postValue("Search failed: " + e.getMessage());
-                isLoading.postValue(false);
+                postIfCurrent(sequence, () -> {
+                    errorMessage.setValue("Search failed: " + e.getMessage());
+                    isLoading.setValue(false);
+                });
             }
         });
     }
     
     public void clearResults() {
+        cancelPendingSearch();
+        searchSequence.incrementAndGet();
         searchResults.setValue(null);
+        localResults.setValue(null);
+        isLoading.setValue(false);
+    }
+    
+    /**
+     * Query the local full-text index on the DB executor; it answers in milliseconds
+     * and offline, so these hits usually show before the network results
+     */
+    private void searchLibrary(String normalizedQuery, int sequence) {
+        User user = userRepository.getCurrentUser();
+        if (user == null) {
+            localResults.setValue(null);
+            return;
+        }
+        
+        long userId = user.getId();
+        DatabaseExecutor.execute(() -> {
+            if (sequence != searchSequence.get()) {
+                return; // Superseded before it ran
+            }
+            List<Track> tracks = musicRepository.searchLibrary(userId, normalizedQuery, LOCAL_RESULT_LIMIT);
+            postIfCurrent(sequence, () -> localResults.setValue(tracks));
+        });
+    }
+    
+    private void showResults(int sequence, TrackPager pager) {
+        resultsSequence = sequence;
+        searchResults.setValue(pager);
+        isLoading.setValue(false);
+    }
+    
+    /**
+     * Apply a result on the main thread unless a newer query was issued by then.
+     * The check runs there, in order with search(), so a result that was current when
+     * it was posted can no longer overwrite what a newer query has already shown.
+     */
+    private void postIfCurrent(int sequence, Runnable update) {
+        mainHandler.post(() -> {
+            if (sequence == searchSequence.get()) {
+                update.run();
+            }
+        });
+    }
+    
+    /**
+     * Get the local result cache, e.g. to read its hit ratio when tuning
+     * @return The shared search result cache
+     */
+    public static SearchResultCache getResultCache() {
+        return resultCache;
+    }
+    
+    /**
+     * Keep the in-library flags of the shown results in step with the library,
+     * and drop removed tracks from the library matches
+     */
+    private void applyLibraryChange(LibraryChange change) {
+        User user = userRepository.getCurrentUser();
+        if (user == null || user.getId() != change.getUserId()
+                || change.getType() == LibraryChange.Type.UPDATED) {
+            return;
+        }
+        
+        boolean inLibrary = change.getType() == LibraryChange.Type.INSERTED;
+        TrackPager pager = searchResults.getValue();
+        if (pager != null) {
+            for (long trackId : change.getTrackIds()) {
+                pager.updateTrack(trackId, track -> track.setInLibrary(inLibrary),
+                        TrackPager.PAYLOAD_IN_LIBRARY);
+            }
+        }
+        
+        List<Track> local = localResults.getValue();
+        if (!inLibrary && local != null) {
+            LongHashSet removed = new LongHashSet(change.getTrackIds().length);
+            for (long trackId : change.getTrackIds()) {
+                removed.add(trackId);
+            }
+            List<Track> remaining = new ArrayList<>(local.size());
+            for (Track track : local) {
+                if (!removed.contains(track.getId())) {
+                    remaining.add(track);
+                }
+            }
+            if (remaining.size() != local.size()) {
+                localResults.setValue(remaining);
+            }
+        }
+    }
+    
+    /**
+     * Build a pager seeded with the first page that loads further pages as the list scrolls
+     */
+    private TrackPager createPager(String normalizedQuery, List<Track> firstPage, Object nextCursor) {
+        TrackPager pager = new TrackPager(musicRepository.searchPageLoader(normalizedQuery),
+                DeezerApiClient.SEARCH_PAGE_SIZE, PREFETCH_DISTANCE, MAX_RESIDENT_PAGES);
+        pager.setFirstPage(firstPage, nextCursor);
+        pager.setOnLoadErrorListener(e -> errorMessage.setValue("Failed to load more results: " + e.getMessage()));
+        return pager;
+    }
+    
+    private void cancelPendingSearch() {
+        if (pendingSearch != null) {
+            pendingSearch.cancel();
+            pendingSearch = null;
+        }
     }
 }
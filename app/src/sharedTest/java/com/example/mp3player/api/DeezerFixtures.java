@@ -0,0 +1,82 @@
+package com.example.mp3player.api;
+
+import com.example.mp3player.models.Track;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deezer response bodies and the old tree-based parser, shared by the parser's
+ * unit test and its instrumented benchmark
+ */
+final class DeezerFixtures {
+
+    private DeezerFixtures() {
+    }
+
+    /**
+     * The tree-based parsing DeezerApiClient used before the streaming decoder
+     */
+    static List<Track> parseWithTree(String json) {
+        JsonObject jsonObject = new Gson().fromJson(json, JsonObject.class);
+        JsonArray dataArray = jsonObject.getAsJsonArray("data");
+        List<Track> tracks = new ArrayList<>();
+
+        for (int i = 0; i < dataArray.size(); i++) {
+            JsonObject trackJson = dataArray.get(i).getAsJsonObject();
+            Track track = new Track();
+            track.setId(trackJson.get("id").getAsLong());
+            track.setTitle(trackJson.get("title").getAsString());
+            track.setPreviewUrl(trackJson.get("preview").getAsString());
+            track.setDuration(trackJson.get("duration").getAsInt());
+
+            JsonObject artistJson = trackJson.getAsJsonObject("artist");
+            track.setArtist(artistJson.get("name").getAsString());
+
+            JsonObject albumJson = trackJson.getAsJsonObject("album");
+            track.setAlbum(albumJson.get("title").getAsString());
+            track.setArtworkSmallUrl(albumJson.get("cover_small").getAsString());
+            track.setArtworkUrl(albumJson.get("cover_medium").getAsString());
+            track.setArtworkBigUrl(albumJson.get("cover_big").getAsString());
+            track.setArtworkXlUrl(albumJson.get("cover_xl").getAsString());
+
+            tracks.add(track);
+        }
+
+        return tracks;
+    }
+
+    static String buildResponse(int count) {
+        StringBuilder sb = new StringBuilder("{\"data\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(trackJson(i));
+        }
+        sb.append("],\"total\":").append(count).append(",\"next\":null}");
+        return sb.toString();
+    }
+
+    static String trackJson(int i) {
+        return "{\"id\":" + i +
+                ",\"readable\":true,\"title\":\"Title " + i + "\"" +
+                ",\"title_short\":\"Title " + i + "\",\"title_version\":\"\"" +
+                ",\"link\":\"https://www.deezer.com/track/" + i + "\"" +
+                ",\"duration\":" + (120 + i % 180) +
+                ",\"rank\":" + (500000 + i) + ",\"explicit_lyrics\":false" +
+                ",\"preview\":\"https://cdns-preview.dzcdn.net/stream/" + i + ".mp3\"" +
+                ",\"artist\":{\"id\":" + (i % 50) + ",\"name\":\"Artist " + i + "\"" +
+                ",\"picture\":\"https://api.deezer.com/artist/" + i + "/image\",\"type\":\"artist\"}" +
+                ",\"album\":{\"id\":" + (i % 80) + ",\"title\":\"Album " + i + "\"" +
+                ",\"cover\":\"https://api.deezer.com/album/" + i + "/image\"" +
+                ",\"cover_small\":\"https://e-cdns-images.dzcdn.net/images/cover/" + i + "/56x56.jpg\"" +
+                ",\"cover_medium\":\"https://e-cdns-images.dzcdn.net/images/cover/" + i + "/250x250.jpg\"" +
+                ",\"cover_big\":\"https://e-cdns-images.dzcdn.net/images/cover/" + i + "/500x500.jpg\"" +
+                ",\"cover_xl\":\"https://e-cdns-images.dzcdn.net/images/cover/" + i + "/1000x1000.jpg\"" +
+                ",\"type\":\"album\"},\"type\":\"track\"}";
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.mp3player.api;
+
+import com.example.mp3player.models.Track;
+import com.example.mp3player.models.TrackPage;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static com.example.mp3player.api.DeezerFixtures.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the streaming parser against the previous Gson tree-based parser.
+ */
+public class DeezerJsonParserTest {
+    @Test
+    public void parseTrackList_matchesTreeParser() throws IOException {
+        String json = buildResponse(25);
+
+        List<Track> streamed = DeezerJsonParser.parseTrackList(new StringReader(json));
+        List<Track> tree = parseWithTree(json);
+
+        assertEquals(tree.size(), streamed.size());
+        for (int i = 0; i < tree.size(); i++) {
+            Track expected = tree.get(i);
+            Track actual = streamed.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getArtist(), actual.getArtist());
+            assertEquals(expected.getAlbum(), actual.getAlbum());
+            assertEquals(expected.getArtworkSmallUrl(), actual.getArtworkSmallUrl());
+            assertEquals(expected.getArtworkUrl(), actual.getArtworkUrl());
+            assertEquals(expected.getArtworkBigUrl(), actual.getArtworkBigUrl());
+            assertEquals(expected.getArtworkXlUrl(), actual.getArtworkXlUrl());
+            assertEquals(expected.getPreviewUrl(), actual.getPreviewUrl());
+            assertEquals(expected.getDuration(), actual.getDuration());
+        }
+    }
+
+    @Test
+    public void artworkUrl_picksSmallestCoverThatFits() throws IOException {
+        Track track = DeezerJsonParser.parseTrack(new StringReader(trackJson(3)));
+
+        assertEquals(track.getArtworkSmallUrl(), track.getArtworkUrl(48));
+        assertEquals(track.getArtworkUrl(), track.getArtworkUrl(168));
+        assertEquals(track.getArtworkBigUrl(), track.getArtworkUrl(480));
+        assertEquals(track.getArtworkXlUrl(), track.getArtworkUrl(1080));
+        assertEquals(track.getArtworkXlUrl(), track.getArtworkUrl(1440));
+
+        // Rows stored before every size was kept only know the medium cover
+        track.setArtworkSmallUrl(null);
+        track.setArtworkBigUrl(null);
+        track.setArtworkXlUrl(null);
+        assertEquals(track.getArtworkUrl(), track.getArtworkUrl(48));
+        assertEquals(track.getArtworkUrl(), track.getArtworkUrl(1080));
+    }
+
+    @Test
+    public void parseTrack_readsSingleObject() throws IOException {
+        Track track = DeezerJsonParser.parseTrack(new StringReader(trackJson(7)));
+
+        assertEquals(7, track.getId());
+        assertEquals("Title 7", track.getTitle());
+        assertEquals("Artist 7", track.getArtist());
+        assertFalse(track.isInLibrary());
+    }
+
+    @Test
+    public void parseTrackPage_readsNextCursor() throws IOException {
+        String json = "{\"data\":[" + trackJson(1) + "],\"total\":120," +
+                "\"next\":\"https://api.deezer.com/search?q=eminem&index=25\"}";
+
+        TrackPage page = DeezerJsonParser.parseTrackPage(new StringReader(json));
+
+        assertEquals(1, page.getTracks().size());
+        assertEquals(120, page.getTotal());
+        assertEquals(25, page.getNextIndex());
+        assertTrue(page.hasNext());
+    }
+
+    @Test
+    public void parseTrackPage_lastPageHasNoNext() throws IOException {
+        TrackPage page = DeezerJsonParser.parseTrackPage(new StringReader(buildResponse(3)));
+
+        assertFalse(page.hasNext());
+    }
+
+    @Test(expected = IOException.class)
+    public void parseTrackList_apiErrorThrows() throws IOException {
+        String json = "{\"error\":{\"type\":\"DataException\",\"message\":\"no data\",\"code\":800}}";
+        DeezerJsonParser.parseTrackList(new StringReader(json));
+    }
+
+    @Test
+    public void isApiError_readsOnlyFirstField() {
+        assertTrue(DeezerJsonParser.isApiError(new StringReader("{\"error\":{\"code\":4")));
+        assertFalse(DeezerJsonParser.isApiError(new StringReader(buildResponse(3).substring(0, 40))));
+        assertFalse(DeezerJsonParser.isApiError(new StringReader(trackJson(1))));
+        assertFalse(DeezerJsonParser.isApiError(new StringReader("")));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.mp3player.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the cache policy interceptor against a local server standing in for api.deezer.com
+ */
+public class HttpClientProviderTest {
+    private static final String TRACK_JSON = "{\"id\":3,\"title\":\"Title\"}";
+    private static final String ERROR_JSON =
+            "{\"error\":{\"type\":\"Exception\",\"message\":\"Quota limit exceeded\",\"code\":4}}";
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        InetAddress local = InetAddress.getByName(server.getHostName());
+        client = new OkHttpClient.Builder()
+                .dns(hostname -> Collections.singletonList(local))
+                .cache(new Cache(cacheDir.getRoot(), 1024 * 1024))
+                .addNetworkInterceptor(HttpClientProvider::applyCachePolicy)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void success_isServedFromCache() throws IOException {
+        server.enqueue(new MockResponse().setBody(TRACK_JSON).setHeader("Cache-Control", "no-cache"));
+
+        assertEquals(TRACK_JSON, get("/track/3"));
+        assertEquals(TRACK_JSON, get("/track/3"));
+
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void apiError_isNotCached() throws IOException {
+        server.enqueue(new MockResponse().setBody(ERROR_JSON));
+        server.enqueue(new MockResponse().setBody(TRACK_JSON));
+
+        assertEquals(ERROR_JSON, get("/track/3"));
+        assertEquals(TRACK_JSON, get("/track/3"));
+
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void gzippedApiError_isNotCached() throws IOException {
+        Buffer gzipped = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(gzipped))) {
+            sink.writeUtf8(ERROR_JSON);
+        }
+        server.enqueue(new MockResponse().setBody(gzipped).setHeader("Content-Encoding", "gzip"));
+        server.enqueue(new MockResponse().setBody(TRACK_JSON));
+
+        assertEquals(ERROR_JSON, get("/track/3"));
+        assertEquals(TRACK_JSON, get("/track/3"));
+
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void notModified_keepsPolicyMaxAge() throws Exception {
+        // Dated older than the 7-day track policy, so the second request revalidates
+        server.enqueue(new MockResponse().setBody(TRACK_JSON)
+                .setHeader("Date", httpDate(Instant.now().minus(8, ChronoUnit.DAYS)))
+                .setHeader("ETag", "\"v1\"")
+                .setHeader("Cache-Control", "no-cache"));
+        server.enqueue(new MockResponse().setResponseCode(304)
+                .setHeader("Date", httpDate(Instant.now()))
+                .setHeader("ETag", "\"v1\"")
+                .setHeader("Cache-Control", "no-cache"));
+
+        assertEquals(TRACK_JSON, get("/track/3"));
+        assertEquals(TRACK_JSON, get("/track/3"));
+        // The refreshed entry still follows the policy, so no third request is made
+        assertEquals(TRACK_JSON, get("/track/3"));
+
+        assertEquals(2, server.getRequestCount());
+        server.takeRequest();
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    private String get(String path) throws IOException {
+        HttpUrl url = server.url(path).newBuilder().host("api.deezer.com").build();
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            return response.body().string();
+        }
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.mp3player.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final CountDownLatch releaseResponse = new CountDownLatch(1);
+    private final CountDownLatch requestArrived = new CountDownLatch(1);
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        // Hold every response until the test lets it go, so later requests can join the first
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                requestArrived.countDown();
+                releaseResponse.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return new MockResponse().setBody("a,b");
+            }
+        });
+        server.start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        releaseResponse.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    public void execute_coalescesIdenticalRequests() throws Exception {
+        SingleFlight<List<String>> flight = new SingleFlight<>(ArrayList::new);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        flight.execute(client, request("/search"), SingleFlightTest::parse, first);
+        assertTrue(requestArrived.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        flight.execute(client, request("/search"), SingleFlightTest::parse, second);
+        releaseResponse.countDown();
+
+        assertTrue(first.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(second.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, flight.getExecutedCount());
+        assertEquals(1, flight.getDeduplicatedCount());
+        assertEquals(first.result, second.result);
+        assertNotSame(first.result, second.result);
+    }
+
+    @Test
+    public void execute_copiesBeforeFirstListenerRuns() throws Exception {
+        SingleFlight<List<String>> flight = new SingleFlight<>(ArrayList::new);
+        RecordingListener mutating = new RecordingListener() {
+            @Override
+            public void onSuccess(List<String> result) {
+                result.add("changed");
+                super.onSuccess(result);
+            }
+        };
+        RecordingListener second = new RecordingListener();
+
+        flight.execute(client, request("/chart"), SingleFlightTest::parse, mutating);
+        assertTrue(requestArrived.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        flight.execute(client, request("/chart"), SingleFlightTest::parse, second);
+        releaseResponse.countDown();
+
+        assertTrue(second.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(3, mutating.result.size());
+        assertEquals(2, second.result.size());
+    }
+
+    @Test
+    public void cancel_lastListenerCancelsCall() throws Exception {
+        SingleFlight<List<String>> flight = new SingleFlight<>(ArrayList::new);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        RequestHandle firstHandle = flight.execute(client, request("/track"), SingleFlightTest::parse, first);
+        assertTrue(requestArrived.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        RequestHandle secondHandle = flight.execute(client, request("/track"), SingleFlightTest::parse, second);
+
+        firstHandle.cancel();
+        assertEquals(0, flight.getCancelledCount());
+        secondHandle.cancel();
+        assertEquals(1, flight.getCancelledCount());
+
+        releaseResponse.countDown();
+        assertFalse(first.done.await(200, TimeUnit.MILLISECONDS));
+        assertFalse(second.done.await(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void cancel_otherListenerStillGetsResult() throws Exception {
+        SingleFlight<List<String>> flight = new SingleFlight<>(ArrayList::new);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        RequestHandle firstHandle = flight.execute(client, request("/track"), SingleFlightTest::parse, first);
+        assertTrue(requestArrived.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        flight.execute(client, request("/track"), SingleFlightTest::parse, second);
+        firstHandle.cancel();
+        releaseResponse.countDown();
+
+        assertTrue(second.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, second.result.size());
+        assertNull(first.result);
+        assertEquals(0, flight.getCancelledCount());
+    }
+
+    private Request request(String path) {
+        return new Request.Builder().url(server.url(path)).build();
+    }
+
+    private static List<String> parse(ResponseBody body) throws IOException {
+        List<String> values = new ArrayList<>();
+        for (String value : body.string().split(",")) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static class RecordingListener implements SingleFlight.Listener<List<String>> {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile List<String> result;
+
+        @Override
+        public void onSuccess(List<String> result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Exception e) {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.mp3player.database;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class LibrarySearchTest {
+
+    @Test
+    public void toMatchQuery_prefixMatchesEveryWord() {
+        assertEquals("beat* i*", LibrarySearch.toMatchQuery("  Beat I"));
+    }
+
+    @Test
+    public void toMatchQuery_dropsOperatorsAndPunctuation() {
+        assertEquals("rock* n* roll*", LibrarySearch.toMatchQuery("Rock 'n' Roll"));
+        assertEquals("this* or* that*", LibrarySearch.toMatchQuery("\"this\" OR that*"));
+        assertEquals("beyoncé*", LibrarySearch.toMatchQuery("Beyoncé"));
+    }
+
+    @Test
+    public void toMatchQuery_nothingSearchable() {
+        assertNull(LibrarySearch.toMatchQuery(null));
+        assertNull(LibrarySearch.toMatchQuery(" - ! "));
+    }
+
+    @Test
+    public void topRows_keepsBestInRankOrder() {
+        LibrarySearch.TopRows top = new LibrarySearch.TopRows(3);
+        double[] scores = {0.5, 2.0, 0.1, 3.0, 1.0, 2.5};
+        for (int i = 0; i < scores.length; i++) {
+            top.offer(100 + i, scores[i]);
+        }
+
+        assertArrayEquals(new long[]{103, 105, 101}, top.rowIdsBestFirst());
+    }
+
+    @Test
+    public void topRows_tiesKeepOfferOrder() {
+        LibrarySearch.TopRows top = new LibrarySearch.TopRows(2);
+        top.offer(1, 1.0);
+        top.offer(2, 1.0);
+        top.offer(3, 1.0);
+
+        assertArrayEquals(new long[]{1, 2}, top.rowIdsBestFirst());
+        assertEquals(0, new LibrarySearch.TopRows(5).rowIdsBestFirst().length);
+    }
+
+    @Test
+    public void score_titleHitOutranksAlbumHit() {
+        // One phrase, three columns (title, artist, album), 100 rows in the index
+        byte[] titleHit = matchinfo(1, 3, 100, new int[]{1, 5, 5, 0, 0, 0, 0, 0, 0});
+        byte[] albumHit = matchinfo(1, 3, 100, new int[]{0, 0, 0, 0, 0, 0, 1, 5, 5});
+
+        assertTrue(LibrarySearch.score(titleHit) > LibrarySearch.score(albumHit));
+    }
+
+    @Test
+    public void score_rareWordOutranksCommonWord() {
+        byte[] rare = matchinfo(1, 3, 100, new int[]{1, 2, 2, 0, 0, 0, 0, 0, 0});
+        byte[] common = matchinfo(1, 3, 100, new int[]{1, 90, 90, 0, 0, 0, 0, 0, 0});
+
+        assertTrue(LibrarySearch.score(rare) > LibrarySearch.score(common));
+    }
+
+    @Test
+    public void score_noHitsIsZero() {
+        assertEquals(0.0, LibrarySearch.score(matchinfo(1, 3, 10, new int[9])), 0.0);
+    }
+
+    private static byte[] matchinfo(int phrases, int columns, int rows, int[] hits) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (3 + hits.length)).order(ByteOrder.nativeOrder());
+        buffer.putInt(phrases).putInt(columns).putInt(rows);
+        for (int value : hits) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.mp3player.services;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class AudioCacheTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("audio_cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void get_countsHitsAndMisses() throws IOException {
+        AudioCache cache = new AudioCache(directory, 1000);
+        assertNull(cache.get(1));
+
+        download(cache, 1, 100);
+        assertNotNull(cache.get(1));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(100, cache.getSizeBytes());
+    }
+
+    @Test
+    public void commit_evictsLeastRecentlyUsed() throws IOException {
+        AudioCache cache = new AudioCache(directory, 250);
+        download(cache, 1, 100);
+        download(cache, 2, 100);
+        cache.get(1); // 2 is now the least recently used
+
+        download(cache, 3, 100);
+
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(200, cache.getSizeBytes());
+    }
+
+    @Test
+    public void setMaxSizeBytes_trimsToNewCap() throws IOException {
+        AudioCache cache = new AudioCache(directory, 1000);
+        download(cache, 1, 100);
+        download(cache, 2, 100);
+        download(cache, 3, 100);
+
+        cache.setMaxSizeBytes(150);
+
+        assertEquals(100, cache.getSizeBytes());
+        assertEquals(2, cache.getEvictionCount());
+        assertNotNull(cache.get(3));
+        assertFalse(new File(directory, "1.audio").exists());
+    }
+
+    @Test
+    public void load_restoresEntriesAndDropsPartFiles() throws IOException {
+        AudioCache first = new AudioCache(directory, 1000);
+        download(first, 1, 100);
+        File unfinished = first.newPartFile(2);
+        write(unfinished, 50);
+
+        AudioCache second = new AudioCache(directory, 1000);
+
+        assertNotNull(second.get(1));
+        assertEquals(100, second.getSizeBytes());
+        assertFalse(unfinished.exists());
+    }
+
+    private static void download(AudioCache cache, long trackId, int size) throws IOException {
+        File partFile = cache.newPartFile(trackId);
+        write(partFile, size);
+        cache.commit(trackId, partFile);
+    }
+
+    private static void write(File file, int size) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[size]);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.mp3player.services;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PlaybackQueueTest {
+
+    @Test
+    public void linear_stepsForwardAndBackFromStart() {
+        PlaybackQueue queue = new PlaybackQueue(tracks(5), 2, false, new Random(1));
+
+        assertEquals(2, queue.getCurrentEntry());
+        assertEquals(3, queue.moveToNext(true));
+        assertEquals(2, queue.moveToPrevious());
+        assertEquals(1, queue.moveToPrevious());
+        assertEquals(0, queue.moveToPrevious());
+        assertFalse(queue.hasPrevious());
+        assertEquals(1, queue.moveToNext(true));
+        assertEquals(2, queue.moveToNext(true));
+        assertEquals(3, queue.moveToNext(true));
+        assertEquals(4, queue.moveToNext(true));
+        assertFalse(queue.hasNext());
+        assertEquals(-1, queue.moveToNext(true));
+    }
+
+    @Test
+    public void shuffle_playsEveryEntryOnceStartingWithStart() {
+        int count = 50;
+        PlaybackQueue queue = new PlaybackQueue(tracks(count), 7, true, new Random(2));
+        boolean[] seen = new boolean[count];
+        seen[queue.getCurrentEntry()] = true;
+        assertEquals(7, queue.getCurrentEntry());
+
+        int entry;
+        while ((entry = queue.moveToNext(true)) >= 0) {
+            assertFalse(seen[entry]);
+            seen[entry] = true;
+        }
+        for (boolean played : seen) {
+            assertTrue(played);
+        }
+    }
+
+    @Test
+    public void shuffle_peekMatchesMoveAndPreviousReplays() {
+        PlaybackQueue queue = new PlaybackQueue(tracks(20), 0, true, new Random(3));
+        int peeked = queue.peekNext(true);
+        assertEquals(peeked, queue.peekNext(true));
+        assertEquals(peeked, queue.moveToNext(true));
+
+        int third = queue.moveToNext(true);
+        assertEquals(peeked, queue.moveToPrevious());
+        assertEquals(third, queue.moveToNext(true));
+    }
+
+    @Test
+    public void insertNextAndEnqueue() {
+        PlaybackQueue queue = new PlaybackQueue(tracks(3), 0, false, new Random(4));
+        int enqueued = queue.enqueue(track(100));
+        int inserted = queue.insertNext(track(200));
+
+        assertEquals(5, queue.size());
+        assertEquals(200, queue.get(inserted).getId());
+        assertEquals(inserted, queue.moveToNext(true));
+        assertEquals(1, queue.moveToNext(true));
+        assertEquals(2, queue.moveToNext(true));
+        assertEquals(enqueued, queue.moveToNext(true));
+        assertEquals(-1, queue.moveToNext(true));
+        assertEquals(5, queue.getTracks().size());
+    }
+
+    @Test
+    public void repeatOne_replaysOnlyAtCompletion() {
+        PlaybackQueue queue = new PlaybackQueue(tracks(3), 0, false, new Random(5));
+        queue.setRepeatMode(PlaybackQueue.RepeatMode.ONE);
+
+        assertEquals(0, queue.peekNext(false));
+        assertEquals(0, queue.moveToNext(false));
+        assertEquals(1, queue.moveToNext(true));
+    }
+
+    @Test
+    public void repeatAll_wrapsAround() {
+        PlaybackQueue queue = new PlaybackQueue(tracks(2), 1, false, new Random(6));
+        assertFalse(queue.hasNext());
+
+        queue.setRepeatMode(PlaybackQueue.RepeatMode.ALL);
+
+        assertTrue(queue.hasNext());
+        assertEquals(0, queue.moveToNext(false));
+        assertEquals(1, queue.moveToNext(false));
+        assertEquals(0, queue.moveToNext(false));
+        assertEquals(1, queue.moveToPrevious());
+    }
+
+    @Test
+    public void shuffleOff_restoresOrderOfRemaining() {
+        PlaybackQueue queue = new PlaybackQueue(tracks(10), 0, true, new Random(7));
+        List<Integer> played = new ArrayList<>();
+        played.add(queue.getCurrentEntry());
+        for (int i = 0; i < 3; i++) {
+            played.add(queue.moveToNext(true));
+        }
+
+        queue.setShuffle(false);
+
+        int last = -1;
+        int entry;
+        while ((entry = queue.moveToNext(true)) >= 0) {
+            assertFalse(played.contains(entry));
+            assertTrue(entry > last);
+            last = entry;
+        }
+    }
+
+    private static List<Track> tracks(int count) {
+        List<Track> tracks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tracks.add(track(i));
+        }
+        return tracks;
+    }
+
+    private static Track track(long id) {
+        return new Track(id, "Track " + id, "Artist", "Album", null, "https://cdns-preview/" + id + ".mp3", 30, false);
+    }
+}
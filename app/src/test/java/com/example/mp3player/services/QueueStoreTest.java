@@ -0,0 +1,125 @@
+package com.example.mp3player.services;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class QueueStoreTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("playback_queue", null).toFile();
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void read_returnsNullWithoutSnapshot() {
+        QueueStore store = new QueueStore(file, Runnable::run);
+
+        assertNull(store.read());
+    }
+
+    @Test
+    public void saveQueue_roundTripsTracks() {
+        QueueStore store = new QueueStore(file, Runnable::run);
+        Track first = new Track(1, "Beat It", "Michael Jackson", "Thriller", "https://e-cdns/250.jpg",
+                "https://cdns-preview/1.mp3", 258, true);
+        first.setArtworkSmallUrl("https://e-cdns/56.jpg");
+        first.setArtworkBigUrl("https://e-cdns/500.jpg");
+        first.setArtworkXlUrl("https://e-cdns/1000.jpg");
+        Track second = new Track(2, "Yesterday", "The Beatles", null, null, "https://cdns-preview/2.mp3", 125, false);
+
+        store.saveQueue(Arrays.asList(first, second), 1);
+        QueueStore.Snapshot snapshot = store.read();
+
+        assertEquals(2, snapshot.tracks.size());
+        assertEquals(1, snapshot.index);
+        assertEquals(0, snapshot.positionMs);
+        Track restored = snapshot.tracks.get(0);
+        assertEquals(1, restored.getId());
+        assertEquals("Beat It", restored.getTitle());
+        assertEquals("https://e-cdns/56.jpg", restored.getArtworkSmallUrl());
+        assertEquals("https://e-cdns/250.jpg", restored.getArtworkUrl());
+        assertEquals("https://e-cdns/500.jpg", restored.getArtworkBigUrl());
+        assertEquals("https://e-cdns/1000.jpg", restored.getArtworkXlUrl());
+        assertEquals("https://cdns-preview/1.mp3", restored.getPreviewUrl());
+        assertEquals(258, restored.getDuration());
+        assertTrue(restored.isInLibrary());
+        assertNull(snapshot.tracks.get(1).getAlbum());
+    }
+
+    @Test
+    public void read_acceptsVersionOneFile() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x51554555);
+            out.writeInt(1);
+            out.writeInt(0); // Index
+            out.writeInt(4000);
+            out.writeInt(30_000);
+            out.writeInt(1);
+            out.writeLong(9);
+            // Title, artist, album, then the four covers with no count, preview URL
+            String[] strings = {"Title", "Artist", null, "s", "m", "b", "xl", "https://cdns-preview/9.mp3"};
+            for (String value : strings) {
+                out.writeBoolean(value != null);
+                if (value != null) {
+                    out.writeUTF(value);
+                }
+            }
+            out.writeInt(30);
+            out.writeBoolean(false);
+        }
+
+        QueueStore.Snapshot snapshot = new QueueStore(file, Runnable::run).read();
+
+        assertEquals(4000, snapshot.positionMs);
+        Track track = snapshot.tracks.get(0);
+        assertEquals(9, track.getId());
+        assertEquals("s", track.getArtworkSmallUrl());
+        assertEquals("xl", track.getArtworkXlUrl());
+        assertEquals("https://cdns-preview/9.mp3", track.getPreviewUrl());
+    }
+
+    @Test
+    public void savePosition_updatesHeaderOnly() {
+        QueueStore store = new QueueStore(file, Runnable::run);
+        Track track = new Track(7, "Title", "Artist", "Album", null, "https://cdns-preview/7.mp3", 30, false);
+        store.saveQueue(Arrays.asList(track, track, track), 0);
+        long length = file.length();
+
+        store.savePosition(2, 12_500, 30_000);
+        QueueStore.Snapshot snapshot = store.read();
+
+        assertEquals(length, file.length());
+        assertEquals(2, snapshot.index);
+        assertEquals(12_500, snapshot.positionMs);
+        assertEquals(30_000, snapshot.durationMs);
+        assertEquals(3, snapshot.tracks.size());
+    }
+
+    @Test
+    public void savePosition_ignoredWithoutQueue() {
+        QueueStore store = new QueueStore(file, Runnable::run);
+
+        store.savePosition(0, 1000, 30_000);
+
+        assertFalse(file.exists());
+    }
+}
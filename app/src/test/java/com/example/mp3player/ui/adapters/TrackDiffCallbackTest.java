@@ -0,0 +1,47 @@
+package com.example.mp3player.ui.adapters;
+
+import com.example.mp3player.models.Track;
+import com.example.mp3player.utils.TrackPager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TrackDiffCallbackTest {
+
+    @Test
+    public void sameIdIsSameItem() {
+        Track a = track(1, "Song", false);
+        Track b = track(1, "Renamed", false);
+
+        assertTrue(TrackDiffCallback.INSTANCE.areItemsTheSame(a, b));
+        assertFalse(TrackDiffCallback.INSTANCE.areItemsTheSame(a, track(2, "Song", false)));
+    }
+
+    @Test
+    public void inLibraryChangeIsPartialRebind() {
+        Track before = track(1, "Song", false);
+        Track after = track(1, "Song", true);
+
+        assertFalse(TrackDiffCallback.INSTANCE.areContentsTheSame(before, after));
+        assertSame(TrackPager.PAYLOAD_IN_LIBRARY, TrackDiffCallback.INSTANCE.getChangePayload(before, after));
+    }
+
+    @Test
+    public void titleChangeIsFullRebind() {
+        Track before = track(1, "Song", false);
+        Track after = track(1, "Renamed", true);
+
+        assertFalse(TrackDiffCallback.INSTANCE.areContentsTheSame(before, after));
+        assertNull(TrackDiffCallback.INSTANCE.getChangePayload(before, after));
+    }
+
+    private static Track track(long id, String title, boolean inLibrary) {
+        Track track = new Track();
+        track.setId(id);
+        track.setTitle(title);
+        track.setArtist("Artist");
+        track.setInLibrary(inLibrary);
+        return track;
+    }
+}
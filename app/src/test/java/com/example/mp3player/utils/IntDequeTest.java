@@ -0,0 +1,52 @@
+package com.example.mp3player.utils;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class IntDequeTest {
+
+    @Test
+    public void addAndPollAtBothEnds() {
+        IntDeque deque = new IntDeque();
+        deque.addLast(2);
+        deque.addFirst(1);
+        deque.addLast(3);
+
+        assertEquals(3, deque.size());
+        assertEquals(1, deque.peekFirst());
+        assertEquals(3, deque.peekLast());
+        assertEquals(2, deque.get(1));
+        assertEquals(1, deque.pollFirst());
+        assertEquals(3, deque.pollLast());
+        assertEquals(2, deque.pollFirst());
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void growsWhileWrapped() {
+        IntDeque deque = new IntDeque(4);
+        // Head wraps to the end of the array before it grows
+        for (int i = 0; i < 100; i++) {
+            deque.addFirst(-i);
+            deque.addLast(i);
+        }
+
+        assertEquals(200, deque.size());
+        assertEquals(-99, deque.peekFirst());
+        assertEquals(99, deque.peekLast());
+        for (int i = 99; i >= 0; i--) {
+            assertEquals(-i, deque.pollFirst());
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, deque.pollFirst());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void pollEmpty_throws() {
+        new IntDeque().pollFirst();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.mp3player.utils;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LongHashSetTest {
+
+    @Test
+    public void addContainsRemove() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue(set.add(3116580L));
+        assertFalse(set.add(3116580L));
+        assertTrue(set.contains(3116580L));
+        assertFalse(set.contains(42L));
+        assertEquals(1, set.size());
+
+        assertTrue(set.remove(3116580L));
+        assertFalse(set.remove(3116580L));
+        assertFalse(set.contains(3116580L));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void zeroIsAnOrdinaryKey() {
+        LongHashSet set = new LongHashSet();
+
+        assertFalse(set.contains(0L));
+        assertTrue(set.add(0L));
+        assertTrue(set.contains(0L));
+        assertEquals(1, set.size());
+        assertTrue(set.remove(0L));
+        assertFalse(set.contains(0L));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        LongHashSet set = new LongHashSet(4);
+        for (long id = 1; id <= 10_000; id++) {
+            set.add(id);
+        }
+
+        assertEquals(10_000, set.size());
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(set.contains(id));
+        }
+        assertFalse(set.contains(10_001L));
+    }
+
+    @Test
+    public void matchesHashSetUnderRandomChurn() {
+        // Small key range forces long probe runs, which exercises backward-shift removal
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), set.add(key));
+            } else {
+                assertEquals(expected.remove(key), set.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long key = -100; key < 1_900; key++) {
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+
+    @Test
+    public void clear_removesEverything() {
+        LongHashSet set = new LongHashSet();
+        set.add(0L);
+        set.add(5L);
+
+        set.clear();
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0L));
+        assertFalse(set.contains(5L));
+    }
+}
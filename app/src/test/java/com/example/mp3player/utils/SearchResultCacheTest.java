@@ -0,0 +1,114 @@
+package com.example.mp3player.utils;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchResultCacheTest {
+
+    @Test
+    public void normalize_collapsesCaseAndWhitespace() {
+        assertEquals("the beatles", SearchResultCache.normalize("  The   BEATLES "));
+        assertEquals("", SearchResultCache.normalize(null));
+    }
+
+    @Test
+    public void get_returnsExactMatch() {
+        SearchResultCache cache = new SearchResultCache(4);
+        cache.put("Beat", Arrays.asList(track(1, "Beat It", "Michael Jackson")), null);
+
+        assertEquals(1, cache.get("beat ").getTracks().size());
+        assertEquals(1, cache.getExactHitCount());
+    }
+
+    @Test
+    public void findByPrefix_filtersShorterQueryResults() {
+        SearchResultCache cache = new SearchResultCache(4);
+        cache.put("beat", Arrays.asList(
+                track(1, "Beat It", "Michael Jackson"),
+                track(2, "Yesterday", "The Beatles"),
+                track(3, "Heartbeat", "Someone")), null);
+
+        assertNull(cache.get("beatl"));
+        List<Track> provisional = cache.findByPrefix("beatl");
+
+        assertEquals(1, provisional.size());
+        assertEquals(2, provisional.get(0).getId());
+        assertEquals(1, cache.getPrefixHitCount());
+    }
+
+    @Test
+    public void findByPrefix_missWithoutPrefix() {
+        SearchResultCache cache = new SearchResultCache(4);
+
+        assertNull(cache.findByPrefix("queen"));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.0, cache.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        SearchResultCache cache = new SearchResultCache(2);
+        cache.put("a", Arrays.asList(track(1, "A", "x")), null);
+        cache.put("b", Arrays.asList(track(2, "B", "x")), null);
+        cache.get("a");
+        cache.put("c", Arrays.asList(track(3, "C", "x")), null);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void tracks_areCopiedInAndOut() {
+        SearchResultCache cache = new SearchResultCache(4);
+        Track stored = track(1, "Beat It", "Michael Jackson");
+        cache.put("beat", Arrays.asList(stored), null);
+        stored.setInLibrary(true);
+
+        Track first = cache.get("beat").getTracks().get(0);
+        assertNotSame(stored, first);
+        assertFalse(first.isInLibrary());
+
+        first.setInLibrary(true);
+        assertFalse(cache.get("beat").getTracks().get(0).isInLibrary());
+        assertFalse(cache.findByPrefix("beat i").get(0).isInLibrary());
+    }
+
+    @Test
+    public void get_keepsNextCursor() {
+        SearchResultCache cache = new SearchResultCache(4);
+        cache.put("queen", Arrays.asList(track(1, "Bohemian Rhapsody", "Queen")), 25);
+
+        assertEquals(25, cache.get("queen").getNextCursor());
+    }
+
+    @Test
+    public void get_expiresAfterMaxAge() {
+        long[] now = {0};
+        SearchResultCache cache = new SearchResultCache(4, () -> 1000, () -> now[0]);
+        cache.put("beat", Arrays.asList(track(1, "Beat It", "Michael Jackson")), null);
+
+        now[0] = 999;
+        assertNotNull(cache.get("beat"));
+        assertEquals(1, cache.findByPrefix("beat i").size());
+
+        now[0] = 1000;
+        assertNull(cache.get("beat"));
+        assertNull(cache.findByPrefix("beat i"));
+        assertEquals(0, cache.size());
+    }
+
+    private static Track track(long id, String title, String artist) {
+        Track track = new Track();
+        track.setId(id);
+        track.setTitle(title);
+        track.setArtist(artist);
+        return track;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.mp3player.utils;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TrackListTest {
+    @Test
+    public void copyOf_sharesTrackListAndCopiesOthers() {
+        List<Track> source = new ArrayList<>(Arrays.asList(track(1), track(2)));
+
+        TrackList copy = TrackList.copyOf(source);
+        source.clear();
+
+        assertEquals(2, copy.size());
+        assertSame(copy, TrackList.copyOf(copy));
+        assertSame(TrackList.EMPTY, TrackList.copyOf(Collections.<Track>emptyList()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void isReadOnly() {
+        TrackList.copyOf(Arrays.asList(track(1))).add(track(2));
+    }
+
+    @Test
+    public void indexOfId_findsFirstOccurrence() {
+        Track repeated = track(7);
+        TrackList tracks = TrackList.copyOf(Arrays.asList(track(0), repeated, track(3), repeated));
+
+        assertEquals(0, tracks.indexOfId(0));
+        assertEquals(1, tracks.indexOfId(7));
+        assertEquals(2, tracks.indexOfId(3));
+        assertEquals(-1, tracks.indexOfId(4));
+        assertEquals(-1, TrackList.EMPTY.indexOfId(0));
+    }
+
+    @Test
+    public void indexOf_comparesByIdentity() {
+        Track first = track(5);
+        Track sameId = track(5);
+        TrackList tracks = TrackList.copyOf(Arrays.asList(first, sameId));
+
+        assertEquals(0, tracks.indexOf(first));
+        assertEquals(1, tracks.indexOf(sameId));
+        assertFalse(tracks.contains(track(5)));
+    }
+
+    @Test
+    public void concat_keepsOrder() {
+        TrackList tracks = TrackList.concat(Arrays.asList(track(1), track(2)), Arrays.asList(track(3)));
+
+        assertEquals(3, tracks.size());
+        assertEquals(3, tracks.get(2).getId());
+        assertEquals(2, tracks.indexOfId(3));
+    }
+
+    private static Track track(long id) {
+        Track track = new Track();
+        track.setId(id);
+        track.setTitle("Track " + id);
+        return track;
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.mp3player.utils;
+
+import com.example.mp3player.models.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TrackPagerTest {
+    private static final int PAGE_SIZE = 10;
+    private static final int TOTAL = 95;
+
+    /**
+     * Loader over an in-memory list of TOTAL tracks whose cursor is the start index
+     */
+    private static class FakeLoader implements TrackPager.PageLoader {
+        final List<Integer> requestedCursors = new ArrayList<>();
+
+        @Override
+        public com.example.mp3player.api.RequestHandle loadPage(Object cursor, int pageSize,
+                                                                TrackPager.PageCallback callback) {
+            int start = (Integer) cursor;
+            requestedCursors.add(start);
+
+            List<Track> page = new ArrayList<>();
+            for (int i = start; i < Math.min(start + pageSize, TOTAL); i++) {
+                page.add(track(i));
+            }
+            int next = start + pageSize;
+            callback.onPageLoaded(page, next < TOTAL ? next : null);
+            return null;
+        }
+    }
+
+    /**
+     * Loader over a list of track IDs whose cursor is the index of the first raw row
+     */
+    private static class SourceLoader implements TrackPager.PageLoader {
+        final List<Long> source;
+        final List<Integer> requestedCounts = new ArrayList<>();
+
+        SourceLoader(List<Long> source) {
+            this.source = source;
+        }
+
+        @Override
+        public com.example.mp3player.api.RequestHandle loadPage(Object cursor, int pageSize,
+                                                                TrackPager.PageCallback callback) {
+            int start = (Integer) cursor;
+            requestedCounts.add(pageSize);
+
+            List<Track> page = new ArrayList<>();
+            for (int i = start; i < Math.min(start + pageSize, source.size()); i++) {
+                page.add(track(source.get(i)));
+            }
+            int next = start + pageSize;
+            callback.onPageLoaded(page, next < source.size() ? next : null);
+            return null;
+        }
+    }
+
+    private static class RecordingListener implements TrackPager.Listener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events.add("inserted " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events.add("removed " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            events.add("changed " + positionStart + "+" + itemCount);
+        }
+    }
+
+    @Test
+    public void loadInitial_loadsFirstPage() {
+        FakeLoader loader = new FakeLoader();
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 4, Runnable::run);
+
+        pager.loadInitial(0);
+
+        assertEquals(PAGE_SIZE, pager.size());
+        assertEquals(0, pager.get(0).getId());
+    }
+
+    @Test
+    public void get_prefetchesNearEnd() {
+        FakeLoader loader = new FakeLoader();
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 4, Runnable::run);
+        pager.loadInitial(0);
+
+        pager.get(5);
+        assertEquals(PAGE_SIZE, pager.size());
+
+        pager.get(7);
+        assertEquals(2 * PAGE_SIZE, pager.size());
+    }
+
+    @Test
+    public void get_stopsAtLastPage() {
+        FakeLoader loader = new FakeLoader();
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 20, Runnable::run);
+        pager.loadInitial(0);
+
+        for (int i = 0; i < pager.size(); i++) {
+            assertEquals(i, pager.get(i).getId());
+        }
+
+        assertEquals(TOTAL, pager.size());
+        assertTrue(pager.isEndReached());
+    }
+
+    @Test
+    public void get_evictsFarPagesAndReloadsThem() {
+        FakeLoader loader = new FakeLoader();
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 4, Runnable::run);
+        pager.loadInitial(0);
+
+        for (int i = 0; i < pager.size(); i++) {
+            pager.get(i);
+        }
+        assertTrue(pager.getResidentPageCount() <= 4);
+
+        // Scrolling back to the top reloads the first page from its cursor
+        int requestsBefore = loader.requestedCursors.size();
+        assertNull(pager.get(0));
+        Track first = pager.get(0);
+        assertEquals(0, first.getId());
+        assertEquals(requestsBefore + 1, loader.requestedCursors.size());
+        assertEquals(Integer.valueOf(0), loader.requestedCursors.get(requestsBefore));
+    }
+
+    @Test
+    public void prepend_insertsAtTopAndShiftsLaterPages() {
+        FakeLoader loader = new FakeLoader();
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 20, Runnable::run);
+        pager.loadInitial(0);
+        pager.get(8);
+
+        List<Track> added = new ArrayList<>();
+        added.add(track(1000));
+        assertTrue(pager.prepend(added));
+
+        assertEquals(2 * PAGE_SIZE + 1, pager.size());
+        assertEquals(1000, pager.get(0).getId());
+        assertEquals(10, pager.get(PAGE_SIZE + 1).getId());
+    }
+
+    @Test
+    public void remove_dropsRowAndReportsEvictedPages() {
+        FakeLoader loader = new FakeLoader();
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 4, Runnable::run);
+        pager.loadInitial(0);
+
+        assertTrue(pager.remove(3));
+        assertEquals(PAGE_SIZE - 1, pager.size());
+        assertEquals(4, pager.get(3).getId());
+
+        // Scroll far enough that the first page is evicted
+        for (int i = 0; i < pager.size(); i++) {
+            pager.get(i);
+        }
+        assertFalse(pager.remove(5));
+    }
+
+    @Test
+    public void updateTrack_changesResidentCopies() {
+        FakeLoader loader = new FakeLoader();
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 4, Runnable::run);
+        pager.loadInitial(0);
+
+        assertEquals(1, pager.updateTrack(2, track -> track.setInLibrary(true), null));
+        assertTrue(pager.get(2).isInLibrary());
+        assertEquals(0, pager.updateTrack(500, track -> track.setInLibrary(true), null));
+    }
+
+    @Test
+    public void getResidentTracks_sharedUntilPagesChange() {
+        FakeLoader loader = new FakeLoader();
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 20, Runnable::run);
+        pager.loadInitial(0);
+
+        TrackList first = pager.getResidentTracks();
+        assertSame(first, pager.getResidentTracks());
+
+        pager.get(8);
+        TrackList second = pager.getResidentTracks();
+        assertNotSame(first, second);
+        assertEquals(PAGE_SIZE, first.size());
+        assertEquals(2 * PAGE_SIZE, second.size());
+
+        assertTrue(pager.remove(3));
+        assertEquals(2 * PAGE_SIZE - 1, pager.getResidentTracks().size());
+        assertEquals(-1, pager.getResidentTracks().indexOfId(3));
+    }
+
+    @Test
+    public void addPage_dropsTracksAlreadyListed() {
+        // Pages of 10 that overlap the previous page by 5, as a shifting result set would
+        TrackPager.PageLoader overlapping = (cursor, pageSize, callback) -> {
+            int start = (Integer) cursor;
+            List<Track> page = new ArrayList<>();
+            for (int i = start; i < start + pageSize; i++) {
+                page.add(track(i));
+            }
+            callback.onPageLoaded(page, start < 20 ? start + 5 : null);
+            return null;
+        };
+        TrackPager pager = new TrackPager(overlapping, PAGE_SIZE, 3, 20, Runnable::run);
+        pager.loadInitial(0);
+        for (int i = 0; i < pager.size(); i++) {
+            pager.get(i);
+        }
+
+        assertTrue(pager.isEndReached());
+        assertEquals(30, pager.size());
+        for (int i = 0; i < pager.size(); i++) {
+            assertEquals(i, pager.get(i).getId());
+        }
+    }
+
+    @Test
+    public void addPage_keepsLoadingPastPageOfRepeats() {
+        List<Track> repeats = new ArrayList<>();
+        repeats.add(track(1));
+        TrackPager.PageLoader loader = (cursor, pageSize, callback) -> {
+            int start = (Integer) cursor;
+            List<Track> page = new ArrayList<>();
+            page.add(track(start == 1 ? 1 : start));
+            callback.onPageLoaded(page, start < 2 ? start + 1 : null);
+            return null;
+        };
+        TrackPager pager = new TrackPager(loader, 1, 3, 20, Runnable::run);
+        pager.setFirstPage(repeats, 1);
+        pager.get(0);
+
+        // The second page only repeats the first, so the third loads without another bind
+        assertEquals(2, pager.size());
+        assertEquals(2, pager.get(1).getId());
+        assertTrue(pager.isEndReached());
+    }
+
+    @Test
+    public void reload_dropsDuplicatesOfEvictedPages() {
+        // Raw rows 0-39; raw row 15 repeats track 3 from the first page
+        List<Long> source = new ArrayList<>();
+        for (long i = 0; i < 40; i++) {
+            source.add(i == 15 ? 3 : i);
+        }
+        SourceLoader loader = new SourceLoader(source);
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 2, Runnable::run);
+        pager.loadInitial(0);
+        for (int i = 0; i < pager.size(); i++) {
+            pager.get(i);
+        }
+        assertEquals(39, pager.size());
+
+        // Scroll back to the second page while the first stays evicted
+        assertNull(pager.get(12));
+        assertEquals(Integer.valueOf(10), loader.requestedCounts.get(loader.requestedCounts.size() - 1));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 10; i < 19; i++) {
+            ids.add(pager.get(i).getId());
+        }
+
+        assertEquals(39, pager.size());
+        assertFalse(ids.contains(3L));
+        assertEquals(Long.valueOf(19), ids.get(ids.size() - 1));
+    }
+
+    @Test
+    public void reload_reportsLongerPageAsInsert() {
+        List<Long> source = new ArrayList<>();
+        for (long i = 0; i < 40; i++) {
+            source.add(i == 15 ? 3 : i);
+        }
+        SourceLoader loader = new SourceLoader(source);
+        TrackPager pager = new TrackPager(loader, PAGE_SIZE, 3, 2, Runnable::run);
+        RecordingListener listener = new RecordingListener();
+        pager.setListener(listener);
+        pager.loadInitial(0);
+        for (int i = 0; i < pager.size(); i++) {
+            pager.get(i);
+        }
+        listener.events.clear();
+
+        // The repeat is replaced at the source by a track new to the list
+        source.set(15, 100L);
+        assertNull(pager.get(12));
+
+        assertEquals(40, pager.size());
+        assertEquals(100, pager.get(15).getId());
+        assertEquals(19, pager.get(19).getId());
+        assertTrue(listener.events.contains("changed 10+9"));
+        assertTrue(listener.events.contains("inserted 19+1"));
+        // Later pages moved down by one
+        pager.get(20);
+        assertEquals(20, pager.get(20).getId());
+    }
+
+    @Test
+    public void of_holdsFixedList() {
+        List<Track> tracks = new ArrayList<>();
+        tracks.add(track(1));
+        tracks.add(track(2));
+
+        TrackPager pager = TrackPager.of(tracks);
+
+        assertEquals(2, pager.size());
+        assertTrue(pager.isEndReached());
+        assertEquals(2, pager.get(1).getId());
+    }
+
+    private static Track track(long id) {
+        Track track = new Track();
+        track.setId(id);
+        track.setTitle("Track " + id);
+        return track;
+    }
+}